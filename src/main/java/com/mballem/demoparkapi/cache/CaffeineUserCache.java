@@ -0,0 +1,56 @@
+package com.mballem.demoparkapi.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Optional;
+
+public class CaffeineUserCache implements UserCache {
+    private final Cache<Long, UserSnapshot> byId;
+    private final Cache<String, UserSnapshot> byUsername;
+
+    public CaffeineUserCache(long maximumSize, Duration expireAfterWrite, MeterRegistry registry) {
+        this.byId = CaffeineCacheMetrics.monitor(registry, newCache(maximumSize, expireAfterWrite), "users.by-id");
+        this.byUsername = CaffeineCacheMetrics.monitor(registry, newCache(maximumSize, expireAfterWrite), "users.by-username");
+    }
+
+    private static <K> Cache<K, UserSnapshot> newCache(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<UserSnapshot> getById(Long id) {
+        return Optional.ofNullable(byId.getIfPresent(id));
+    }
+
+    @Override
+    public Optional<UserSnapshot> getByUsername(String username) {
+        return Optional.ofNullable(byUsername.getIfPresent(username));
+    }
+
+    @Override
+    // A read that overlapped an update must not replace the newer snapshot another request already cached.
+    public void put(UserSnapshot user) {
+        byId.asMap().merge(user.id(), user, UserSnapshot::newest);
+        byUsername.asMap().merge(user.username(), user, UserSnapshot::newest);
+    }
+
+    @Override
+    public void evict(User user) {
+        if (user.getId() != null) {
+            byId.invalidate(user.getId());
+        }
+        if (user.getUsername() != null) {
+            byUsername.invalidate(user.getUsername());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.mballem.demoparkapi.cache;
+
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+
+import java.util.Optional;
+
+public interface UserCache {
+    Optional<UserSnapshot> getById(Long id);
+
+    Optional<UserSnapshot> getByUsername(String username);
+
+    void put(UserSnapshot user);
+
+    void evict(User user);
+}
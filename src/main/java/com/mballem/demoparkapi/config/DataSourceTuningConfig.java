@@ -0,0 +1,53 @@
+package com.mballem.demoparkapi.config;
+
+import com.mballem.demoparkapi.datasource.HikariPools;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+@Slf4j
+@Configuration
+public class DataSourceTuningConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariPoolSizingPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    autoSize(pool, environment);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Fixed-size pool of min(cores * 2 + spindles, expected concurrency): no connection churn under bursts.
+    public static void autoSize(HikariDataSource pool, Environment environment) {
+        if (!environment.getProperty("api.datasource.pool.auto-size", Boolean.class, false)) {
+            return;
+        }
+        int size = HikariPools.poolSize(environment.getProperty("api.datasource.pool.expected-concurrency", Integer.class, 50),
+                environment.getProperty("api.datasource.pool.spindles", Integer.class, 1));
+        pool.setMaximumPoolSize(size);
+        pool.setMinimumIdle(size);
+        log.info("Hikari pool {} sized to {} connections", pool.getPoolName() == null ? "default" : pool.getPoolName(), size);
+    }
+
+    @Bean
+    public MeterBinder dataSourcePoolSaturationMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> HikariPools.find(dataSources.orderedStream().toList()).forEach(pool ->
+                Gauge.builder("datasource.pool.saturation", pool, HikariPools::saturation)
+                        .tag("pool", pool.getPoolName() == null ? "default" : pool.getPoolName())
+                        .description("Active connections divided by the maximum pool size")
+                        .register(registry));
+    }
+}
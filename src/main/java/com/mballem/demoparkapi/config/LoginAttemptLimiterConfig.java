@@ -0,0 +1,30 @@
+package com.mballem.demoparkapi.config;
+
+import com.mballem.demoparkapi.security.InMemoryLoginAttemptLimiter;
+import com.mballem.demoparkapi.security.LoginAttemptLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LoginAttemptLimiterConfig {
+    @Bean
+    @ConditionalOnMissingBean(LoginAttemptLimiter.class)
+    public LoginAttemptLimiter loginAttemptLimiter(@Value("${api.security.login.username-requests-per-minute:10}") int usernameRequestsPerMinute,
+                                                   @Value("${api.security.login.username-burst:5}") int usernameBurst,
+                                                   @Value("${api.security.login.address-requests-per-minute:120}") int addressRequestsPerMinute,
+                                                   @Value("${api.security.login.address-burst:30}") int addressBurst,
+                                                   @Value("${api.security.login.max-failures:5}") int maxFailures,
+                                                   @Value("${api.security.login.failure-window:PT15M}") Duration failureWindow,
+                                                   @Value("${api.security.login.lockout:PT15M}") Duration lockout,
+                                                   @Value("${api.security.login.maximum-tracked-keys:100000}") long maximumTrackedKeys,
+                                                   @Value("${api.security.login.idle-eviction:PT30M}") Duration idleEviction,
+                                                   MeterRegistry registry) {
+        return new InMemoryLoginAttemptLimiter(usernameRequestsPerMinute, usernameBurst, addressRequestsPerMinute, addressBurst,
+                maxFailures, failureWindow, lockout, maximumTrackedKeys, idleEviction, registry);
+    }
+}
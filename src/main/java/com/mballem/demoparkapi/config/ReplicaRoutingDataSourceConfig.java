@@ -0,0 +1,71 @@
+package com.mballem.demoparkapi.config;
+
+import com.mballem.demoparkapi.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+@Configuration
+@ConditionalOnProperty(name = "api.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingDataSourceConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+                                                             @Value("${api.datasource.replicas.urls:}") List<String> urls,
+                                                             @Value("${api.datasource.replicas.username:}") String username,
+                                                             @Value("${api.datasource.replicas.password:}") String password,
+                                                             @Value("${api.datasource.replicas.selection:round-robin}") String selection,
+                                                             @Value("${api.datasource.replicas.lag-query:}") String lagQuery,
+                                                             @Value("${api.datasource.replicas.max-lag:PT5S}") Duration maxLag) {
+        List<String> replicaUrls = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (replicaUrls.isEmpty()) {
+            throw new IllegalStateException("api.datasource.replicas.enabled=true requires at least one api.datasource.replicas.urls entry");
+        }
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName(ReplicaRoutingDataSource.PRIMARY);
+        DataSourceTuningConfig.autoSize(primary, environment);
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.size());
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i));
+            if (!username.isBlank()) {
+                replica.setUsername(username);
+                replica.setPassword(password);
+            }
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        return new ReplicaRoutingDataSource(primary, replicas,
+                ReplicaRoutingDataSource.Selection.valueOf(selection.trim().toUpperCase(Locale.ROOT).replace('-', '_')),
+                lagQuery, maxLag, registry);
+    }
+
+    // Defers the physical connection until the first statement, when the read-only flag of the transaction is known.
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -18,6 +18,6 @@ public class SpringJpaAuditingConfig implements AuditorAware<String> {
        if (authentication != null && authentication.isAuthenticated()){
            return Optional.of(authentication.getName());
        }
-        return null;
+        return Optional.empty();
     }
 }
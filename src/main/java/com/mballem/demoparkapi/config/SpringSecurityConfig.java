@@ -1,7 +1,13 @@
 package com.mballem.demoparkapi.config;
 
 import com.mballem.demoparkapi.jwt.JwtAuthorizationFilter;
+import com.mballem.demoparkapi.security.BCryptStrengthCalibrator;
+import com.mballem.demoparkapi.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -13,6 +19,7 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -21,6 +28,8 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
 
 @EnableMethodSecurity
 @EnableWebMvc
@@ -36,8 +45,11 @@ public class SpringSecurityConfig {
                 .httpBasic(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> {
                     auth
+                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                             .requestMatchers(new AntPathRequestMatcher( "/api/v1/users","POST")).permitAll()
+                            .requestMatchers(new AntPathRequestMatcher("/api/v1/users/batch", "POST")).hasRole("ADMIN")
                             .requestMatchers(new AntPathRequestMatcher("/api/v1/auth", "POST")).permitAll()
+                            .requestMatchers(new AntPathRequestMatcher("/api/v1/auth/refresh", "POST")).permitAll()
                             .requestMatchers(new AntPathRequestMatcher("/swagger-ui/**")).permitAll()
                             .requestMatchers(new AntPathRequestMatcher("/docs-myapi/**")).permitAll()
                             .anyRequest().authenticated();
@@ -56,8 +68,27 @@ public class SpringSecurityConfig {
 
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(@Value("${api.security.bcrypt.strength:0}") int strength,
+                                                  @Value("${api.security.bcrypt.min-strength:10}") int minStrength,
+                                                  @Value("${api.security.bcrypt.target-duration:PT0.25S}") Duration targetDuration,
+                                                  @Value("${api.security.bcrypt.threads:0}") int threads,
+                                                  @Value("${api.security.bcrypt.queue-capacity:64}") int queueCapacity,
+                                                  @Value("${api.security.bcrypt.batch-threads:0}") int batchThreads,
+                                                  @Value("${api.security.bcrypt.batch-queue-capacity:200}") int batchQueueCapacity,
+                                                  @Value("${api.security.bcrypt.timeout:PT5S}") Duration timeout,
+                                                  @Value("${api.security.bcrypt.batch-timeout:PT30S}") Duration batchTimeout,
+                                                  MeterRegistry registry,
+                                                  ObservationRegistry observationRegistry) {
+        int cost = strength > 0 ? strength : BCryptStrengthCalibrator.calibrate(targetDuration, minStrength);
+        PasswordEncoder bcrypt = new BCryptPasswordEncoder(cost);
+
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        int batchPoolSize = batchThreads > 0 ? batchThreads : Math.max(1, poolSize / 2);
+        return new BoundedPasswordEncoder(delegating, poolSize, queueCapacity, batchPoolSize, batchQueueCapacity,
+                timeout, batchTimeout, registry, observationRegistry);
     }
 
     @Bean
@@ -0,0 +1,89 @@
+package com.mballem.demoparkapi.config;
+
+import com.mballem.demoparkapi.datasource.HikariPools;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ThroughputConfigValidator {
+    private static final Set<String> SCHEMA_GENERATION = Set.of("update", "create", "create-drop");
+
+    private final Environment environment;
+    private final ObjectProvider<DataSource> dataSources;
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactories;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void validate() {
+        List<String> warnings = findTraps();
+        warnings.forEach(warning -> log.warn("Throughput trap: {}", warning));
+    }
+
+    public List<String> findTraps() {
+        List<String> warnings = new ArrayList<>();
+        if (environment.getProperty("spring.jpa.show-sql", Boolean.class, false)) {
+            warnings.add("spring.jpa.show-sql=true writes every statement to stdout");
+        }
+        String sqlLogLevel = environment.getProperty("logging.level.org.hibernate.SQL", "").toUpperCase(Locale.ROOT);
+        if (sqlLogLevel.equals("DEBUG") || sqlLogLevel.equals("TRACE")) {
+            warnings.add("logging.level.org.hibernate.SQL=" + sqlLogLevel + " logs every statement");
+        }
+        if (environment.getProperty("spring.jpa.open-in-view", Boolean.class, true)) {
+            warnings.add("spring.jpa.open-in-view=true holds a connection for the whole request");
+        }
+        if (SCHEMA_GENERATION.contains(environment.getProperty("spring.jpa.hibernate.ddl-auto", "none").toLowerCase(Locale.ROOT))) {
+            warnings.add("spring.jpa.hibernate.ddl-auto generates the schema at startup, Flyway should own it");
+        }
+        if (environment.getProperty("spring.jpa.properties.hibernate.jdbc.batch_size", Integer.class, 0) <= 1) {
+            warnings.add("hibernate.jdbc.batch_size is not set, inserts and updates are sent one statement at a time");
+        }
+        // Read from the session factory itself: HibernatePropertiesCustomizer beans can set it without any spring.jpa property.
+        if (entityManagerFactories.orderedStream().anyMatch(factory -> factory.unwrap(SessionFactory.class).getStatistics().isStatisticsEnabled())) {
+            warnings.add("hibernate.generate_statistics=true adds bookkeeping to every session");
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int tomcatThreads = environment.getProperty("server.tomcat.threads.max", Integer.class, 200);
+        boolean virtualThreads = environment.getProperty("api.threads.virtual.enabled", Boolean.class, false);
+        for (HikariDataSource pool : HikariPools.find(dataSources.orderedStream().toList())) {
+            String name = pool.getPoolName() == null ? "default" : pool.getPoolName();
+            int size = pool.getMaximumPoolSize();
+            if (size > cores * 4 + 1) {
+                warnings.add(String.format("pool %s has %d connections for %d cores, the database will spend its time context switching",
+                        name, size, cores));
+            }
+            if (!virtualThreads && size > tomcatThreads) {
+                warnings.add(String.format("pool %s has more connections (%d) than request threads (%d)", name, size, tomcatThreads));
+            }
+            if (pool.getMinimumIdle() >= 0 && pool.getMinimumIdle() < size) {
+                warnings.add(String.format("pool %s is not fixed size (minimum-idle %d, maximum %d), bursts pay for new connections",
+                        name, pool.getMinimumIdle(), size));
+            }
+            if (pool.getConnectionTimeout() > 5000) {
+                warnings.add(String.format("pool %s waits %dms for a connection, saturation shows up as latency instead of errors",
+                        name, pool.getConnectionTimeout()));
+            }
+            String url = pool.getJdbcUrl();
+            if (url != null && url.startsWith("jdbc:postgresql:") && !url.contains("reWriteBatchedInserts=true")
+                    && !"true".equals(pool.getDataSourceProperties().getProperty("reWriteBatchedInserts"))) {
+                warnings.add(String.format("pool %s does not set reWriteBatchedInserts, batched inserts are sent row by row", name));
+            }
+        }
+        return warnings;
+    }
+}
@@ -0,0 +1,22 @@
+package com.mballem.demoparkapi.config;
+
+import com.mballem.demoparkapi.cache.CaffeineUserCache;
+import com.mballem.demoparkapi.cache.UserCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class UserCacheConfig {
+    @Bean
+    @ConditionalOnMissingBean(UserCache.class)
+    public UserCache userCache(@Value("${api.cache.users.maximum-size:10000}") long maximumSize,
+                               @Value("${api.cache.users.expire-after-write:PT5M}") Duration expireAfterWrite,
+                               MeterRegistry registry) {
+        return new CaffeineUserCache(maximumSize, expireAfterWrite, registry);
+    }
+}
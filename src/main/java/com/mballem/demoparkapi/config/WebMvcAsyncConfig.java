@@ -0,0 +1,31 @@
+package com.mballem.demoparkapi.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+// @EnableWebMvc turns off Boot's MVC auto-configuration, so async requests (StreamingResponseBody exports)
+// would otherwise run on a SimpleAsyncTaskExecutor that starts one new thread per request without any limit.
+@Configuration
+public class WebMvcAsyncConfig implements WebMvcConfigurer {
+    private final AsyncTaskExecutor taskExecutor;
+    private final Duration requestTimeout;
+
+    public WebMvcAsyncConfig(@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor taskExecutor,
+                             @Value("${spring.mvc.async.request-timeout:PT5M}") Duration requestTimeout) {
+        this.taskExecutor = taskExecutor;
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(taskExecutor);
+        configurer.setDefaultTimeout(requestTimeout.toMillis());
+    }
+}
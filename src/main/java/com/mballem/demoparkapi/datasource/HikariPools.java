@@ -0,0 +1,49 @@
+package com.mballem.demoparkapi.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class HikariPools {
+
+    private HikariPools() {
+    }
+
+    public static Set<HikariDataSource> find(Collection<DataSource> dataSources) {
+        Set<HikariDataSource> pools = new LinkedHashSet<>();
+        dataSources.forEach(dataSource -> pools.addAll(unwrap(dataSource)));
+        return pools;
+    }
+
+    public static List<HikariDataSource> unwrap(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return List.of(hikari);
+        }
+        if (dataSource instanceof ReplicaRoutingDataSource routing) {
+            return routing.getPools();
+        }
+        if (dataSource instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+            return unwrap(delegating.getTargetDataSource());
+        }
+        return List.of();
+    }
+
+    public static int poolSize(int expectedConcurrency, int spindles) {
+        return poolSize(Runtime.getRuntime().availableProcessors(), expectedConcurrency, spindles);
+    }
+
+    public static int poolSize(int cores, int expectedConcurrency, int spindles) {
+        return Math.max(2, Math.min(cores * 2 + spindles, expectedConcurrency));
+    }
+
+    public static double saturation(HikariDataSource pool) {
+        HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+        return bean == null ? 0 : (double) bean.getActiveConnections() / pool.getMaximumPoolSize();
+    }
+}
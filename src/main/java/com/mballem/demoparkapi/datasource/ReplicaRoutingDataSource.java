@@ -0,0 +1,199 @@
+package com.mballem.demoparkapi.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+    public static final String PRIMARY = "primary";
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    public enum Selection {
+        ROUND_ROBIN, LEAST_CONNECTIONS
+    }
+
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final Selection selection;
+    private final String lagQuery;
+    private final double maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Counter> routed = new HashMap<>();
+    private volatile boolean closed;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaPools, Selection selection,
+                                    String lagQuery, Duration maxLag, MeterRegistry registry) {
+        if (replicaPools.isEmpty()) {
+            throw new IllegalArgumentException("api.datasource.replicas.urls must list at least one replica when replica routing is enabled");
+        }
+        this.primary = primary;
+        this.selection = selection;
+        this.lagQuery = lagQuery == null || lagQuery.isBlank() ? null : lagQuery;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        this.replicas = new ArrayList<>(replicaPools.size());
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        routed.put(PRIMARY, routedCounter(registry, PRIMARY));
+        for (HikariDataSource pool : replicaPools) {
+            Replica replica = new Replica(pool.getPoolName(), pool);
+            replicas.add(replica);
+            targets.put(replica.name, pool);
+            routed.put(replica.name, routedCounter(registry, replica.name));
+            Gauge.builder("datasource.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("pool", replica.name)
+                    .baseUnit("seconds")
+                    .register(registry);
+            Gauge.builder("datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("pool", replica.name)
+                    .register(registry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    private static Counter routedCounter(MeterRegistry registry, String pool) {
+        return Counter.builder("datasource.routing.connections")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    // Read-only work that must see the latest committed state, like credential checks, still reads from the primary.
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(true);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    // Without a lag query the lag is unknown, so the replicas are never considered caught up.
+    public boolean isCaughtUp() {
+        return lagQuery != null && replicas.stream().allMatch(replica -> !replica.healthy || replica.lagSeconds == 0);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Replica replica = TransactionSynchronizationManager.isCurrentTransactionReadOnly() && FORCE_PRIMARY.get() == null ? select() : null;
+        String key = replica == null ? PRIMARY : replica.name;
+        routed.get(key).increment();
+        return key;
+    }
+
+    private Replica select() {
+        int size = replicas.size();
+        if (selection == Selection.LEAST_CONNECTIONS) {
+            Replica least = null;
+            int leastActive = Integer.MAX_VALUE;
+            for (Replica replica : replicas) {
+                int active = replica.activeConnections();
+                if (replica.healthy && active < leastActive) {
+                    least = replica;
+                    leastActive = active;
+                }
+            }
+            return least;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${api.datasource.replicas.check-interval:PT5S}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            if (closed) {
+                return;
+            }
+            boolean healthy;
+            try (Connection connection = replica.pool.getConnection()) {
+                replica.lagSeconds = lagQuery == null ? 0 : queryLag(connection);
+                healthy = replica.lagSeconds <= maxLagSeconds;
+            } catch (SQLException ex) {
+                if (closed) {
+                    return;
+                }
+                replica.lagSeconds = Double.NaN;
+                if (replica.healthy) {
+                    log.warn("Replica {} is now unhealthy, read-only transactions fall back to other pools", replica.name, ex);
+                } else {
+                    log.debug("Replica {} check failed: {}", replica.name, ex.getMessage());
+                }
+                replica.healthy = false;
+                continue;
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Replica {} is now {} (lag {}s), read-only transactions {}", replica.name,
+                        healthy ? "healthy" : "unhealthy", replica.lagSeconds, healthy ? "routed back to it" : "fall back to other pools");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    private double queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet result = statement.executeQuery(lagQuery)) {
+            return result.next() ? result.getDouble(1) : 0;
+        }
+    }
+
+    public List<HikariDataSource> getPools() {
+        List<HikariDataSource> pools = new ArrayList<>(replicas.size() + 1);
+        pools.add(primary);
+        replicas.forEach(replica -> pools.add(replica.pool));
+        return pools;
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        replicas.forEach(replica -> replica.pool.close());
+        primary.close();
+    }
+
+    private static class Replica {
+        private final String name;
+        private final HikariDataSource pool;
+        private volatile boolean healthy = true;
+        private volatile double lagSeconds;
+
+        private Replica(String name, HikariDataSource pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+
+        private int activeConnections() {
+            HikariPoolMXBean bean = pool.getHikariPoolMXBean();
+            return bean == null ? 0 : bean.getActiveConnections();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.mballem.demoparkapi.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedBy;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedBy;
@@ -20,7 +21,8 @@ import java.util.Objects;
 @EntityListeners(AuditingEntityListener.class)
 public class User implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @Column(name = "username", nullable = false, unique = true, length = 100)
@@ -42,6 +44,10 @@ public class User implements Serializable {
     @LastModifiedBy
     @Column(name = "modified_by")
     private String modifiedBy;
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
 
     public enum Role{
         ROLE_ADMIN,ROLE_CLIENT
@@ -0,0 +1,13 @@
+package com.mballem.demoparkapi.exception;
+
+import lombok.Getter;
+
+@Getter
+public class LoginRateLimitedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public LoginRateLimitedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
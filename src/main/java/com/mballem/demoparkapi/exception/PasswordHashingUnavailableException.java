@@ -0,0 +1,7 @@
+package com.mballem.demoparkapi.exception;
+
+public class PasswordHashingUnavailableException extends RuntimeException {
+    public PasswordHashingUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -1,12 +1,17 @@
 package com.mballem.demoparkapi.jwt;
 
 import com.mballem.demoparkapi.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,31 +24,61 @@ import java.io.IOException;
 public class JwtAuthorizationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUserDetailsService detailsService;
+    @Autowired
+    private JwtTokenCache tokenCache;
+    @Autowired
+    private JwtRevocationRegistry revocationRegistry;
+    @Autowired
+    private ObservationRegistry observationRegistry;
+    @Autowired
+    private SecurityEventLogger securityEvents;
+    @Value("${api.jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
        final String token = request.getHeader(JwtUtils.JWT_AUTHORIZATION);
        if (token == null || !token.startsWith(JwtUtils.JWT_BEARER)){
-           log.info("JWT Token null, empty OR Don't have 'Bearer '.");
+           log.debug("JWT Token null, empty OR Don't have 'Bearer '.");
            filterChain.doFilter(request, response);
            return;
        }
 
-       if (!JwtUtils.isTokenValid(token)){
-           log.warn("JWT Token invalid or expired.");
+       Observation verification = Observation.start("security.jwt.verification", observationRegistry);
+       Claims claims = null;
+       String rejection = null;
+       try (Observation.Scope scope = verification.openScope()) {
+           claims = tokenCache.getClaims(token);
+           if (revocationRegistry.isRevoked(claims)){
+               rejection = "revoked";
+           }
+       } catch (JwtException | IllegalArgumentException ex) {
+           rejection = SecurityEventLogger.reason(ex);
+       } finally {
+           verification.lowCardinalityKeyValue("outcome", rejection == null ? "valid" : rejection);
+           verification.stop();
+       }
+
+       if (rejection != null){
+           securityEvents.tokenRejected(rejection, request);
            filterChain.doFilter(request, response);
            return;
        }
-       String username = JwtUtils.getUserFromToken(token);
 
-       toAuthentication(request, username);
+       toAuthentication(request, claims);
 
        filterChain.doFilter(request, response);
     }
 
-    private void toAuthentication(HttpServletRequest request, String username) {
-        UserDetails userDetails = detailsService.loadUserByUsername(username);
+    private void toAuthentication(HttpServletRequest request, Claims claims) {
+        Long id = claims.get(JwtUtils.JWT_ID_CLAIM, Long.class);
+        boolean fromClaims = statelessPrincipal && id != null;
+        UserDetails userDetails = Observation.createNotStarted("security.jwt.principal", observationRegistry)
+                .lowCardinalityKeyValue("source", fromClaims ? "claims" : "database")
+                .observe(() -> fromClaims
+                        ? new JwtUserDetails(id, claims.getSubject(), claims.get(JwtUtils.JWT_ROLE_CLAIM, String.class))
+                        : detailsService.loadUserByUsername(claims.getSubject()));
 
         UsernamePasswordAuthenticationToken authenticationToken = UsernamePasswordAuthenticationToken
                 .authenticated(userDetails, null, userDetails.getAuthorities());
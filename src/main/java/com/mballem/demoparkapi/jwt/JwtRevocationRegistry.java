@@ -0,0 +1,40 @@
+package com.mballem.demoparkapi.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+// Node-local and in memory: other nodes only stop accepting a revoked access token when it expires.
+@Component
+public class JwtRevocationRegistry {
+    private final Cache<String, Instant> notBefore;
+
+    public JwtRevocationRegistry(@Value("${api.jwt.revocation.retention:PT24H}") Duration retention) {
+        this.notBefore = Caffeine.newBuilder()
+                .expireAfterWrite(retention)
+                .build();
+    }
+
+    // iat has second precision: revoke through the next whole second so that no token issued around the change survives.
+    public void revokeTokensIssuedBefore(String username, Instant instant) {
+        notBefore.put(username, instant.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1));
+    }
+
+    public void clear() {
+        notBefore.invalidateAll();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        Instant limit = notBefore.getIfPresent(claims.getSubject());
+        if (limit == null) {
+            return false;
+        }
+        return claims.getIssuedAt() == null || claims.getIssuedAt().toInstant().getEpochSecond() <= limit.getEpochSecond();
+    }
+}
@@ -1,5 +1,6 @@
 package com.mballem.demoparkapi.jwt;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -10,4 +11,10 @@ import lombok.Setter;
 @Getter @Setter
 public class JwtToken {
     private String token;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String refreshToken;
+
+    public JwtToken(String token) {
+        this.token = token;
+    }
 }
@@ -1,5 +1,6 @@
 package com.mballem.demoparkapi.jwt;
 
+import com.mballem.demoparkapi.repository.projection.UserCredentials;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.User;
@@ -14,6 +15,22 @@ public class JwtUserDetails extends User {
         this.user = user;
     }
 
+    public JwtUserDetails(Long id, String username, String role) {
+        super(username, "", AuthorityUtils.createAuthorityList("ROLE_" + role));
+        this.user = new com.mballem.demoparkapi.entity.User();
+        this.user.setId(id);
+        this.user.setUsername(username);
+        this.user.setRole(com.mballem.demoparkapi.entity.User.Role.valueOf("ROLE_" + role));
+    }
+
+    public JwtUserDetails(UserCredentials credentials) {
+        super(credentials.username(), credentials.password(), AuthorityUtils.createAuthorityList(credentials.role().name()));
+        this.user = new com.mballem.demoparkapi.entity.User();
+        this.user.setId(credentials.id());
+        this.user.setUsername(credentials.username());
+        this.user.setRole(credentials.role());
+    }
+
     public Long getId(){
         return this.user.getId();
     }
@@ -1,6 +1,8 @@
 package com.mballem.demoparkapi.jwt;
 
-import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserCredentials;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+import com.mballem.demoparkapi.service.RefreshTokenService;
 import com.mballem.demoparkapi.service.UserService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,17 +17,32 @@ import org.springframework.stereotype.Service;
 public class JwtUserDetailsService implements UserDetailsService {
     @Autowired
     private UserService userService;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    @Autowired
+    private JwtUtils jwtUtils;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userService.findByUsername(username);
+        UserCredentials credentials = userService.findCredentialsByUsername(username);
+
+        return new JwtUserDetails(credentials);
+    }
 
-        return new JwtUserDetails(user);
+    public JwtToken getTokenAuthenticated(JwtUserDetails principal){
+        return createTokens(principal.getId(), principal.getUsername(), principal.getRole(), refreshTokenService.issue(principal.getId()));
     }
 
-    public JwtToken getTokenAuthenticated(String username){
-        User.Role role = userService.findRoleByUsername(username);
+    public JwtToken refreshTokenAuthenticated(String refreshToken){
+        RefreshTokenService.IssuedRefreshToken rotated = refreshTokenService.rotate(refreshToken);
+        UserSnapshot user = userService.findById(rotated.userId());
+
+        return createTokens(user.id(), user.username(), user.role().name(), rotated);
+    }
 
-        return JwtUtils.createToken(username, role.name().substring("ROLE_".length()));
+    private JwtToken createTokens(Long id, String username, String role, RefreshTokenService.IssuedRefreshToken refreshToken){
+        JwtToken token = jwtUtils.createToken(id, username, role.substring("ROLE_".length()));
+        token.setRefreshToken(refreshToken.token());
+        return token;
     }
 }
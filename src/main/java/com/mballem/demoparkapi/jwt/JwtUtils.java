@@ -1,83 +1,130 @@
 package com.mballem.demoparkapi.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 @Slf4j
+@Component
 public class JwtUtils {
     public static final String JWT_BEARER = "Bearer ";
     public static final String JWT_AUTHORIZATION = "Authorization";
-    public static final String SECRET_KEY = "12345678-12345678-12345678-12345678";
-    public static final long EXPIRE_DAYS = 0;
-    public static final long EXPIRE_HOURS = 0;
-    public static final long EXPIRE_MINUTES= 2;
+    public static final String JWT_ID_CLAIM = "ID";
+    public static final String JWT_ROLE_CLAIM = "ROLE";
 
-    private JwtUtils(){
-    }
-    private static Key generateKey(){
-        return Keys.hmacShaKeyFor(SECRET_KEY.getBytes(StandardCharsets.UTF_8));
-    }
-    private static Date toExpireDate(Date start){
-        LocalDateTime dateTime = start.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
-        LocalDateTime end = dateTime.plusDays(EXPIRE_DAYS).plusHours(EXPIRE_HOURS).plusMinutes(EXPIRE_MINUTES);
-        return Date.from(end.atZone(ZoneId.systemDefault()).toInstant());
+    private final String signingKeyId;
+    private final Key signingKey;
+    private final Map<String, Key> verificationKeys;
+    private final Duration expiration;
+    private final JwtParser parser;
+
+    public JwtUtils(@Value("${api.jwt.secret}") String secret,
+                    @Value("${api.jwt.key-id:default}") String keyId,
+                    @Value("${api.jwt.verification-keys:}") String verificationKeys,
+                    @Value("${api.jwt.access-token.expiration:PT2M}") Duration expiration) {
+        this.signingKeyId = keyId;
+        this.signingKey = toKey(secret);
+        this.verificationKeys = parseVerificationKeys(verificationKeys);
+        this.verificationKeys.put(keyId, signingKey);
+        this.expiration = expiration;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return resolveKey(header.getKeyId());
+                    }
+                })
+                .build();
     }
-    public static JwtToken createToken(String username, String role){
-        Date issuedAt = new Date();
-        Date limit = toExpireDate(issuedAt);
+
+    public JwtToken createToken(Long id, String username, String role){
+        Instant issuedAt = Instant.now();
         String token = Jwts.builder()
                 .setHeaderParam("typ", "JWT")
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyId)
                 .setSubject(username)
-                .setIssuedAt(issuedAt)
-                .setExpiration(limit)
-                .signWith(generateKey(), SignatureAlgorithm.HS256)
-                .claim("ROLE", role)
+                .setIssuedAt(Date.from(issuedAt))
+                .setExpiration(Date.from(issuedAt.plus(expiration)))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
+                .claim(JWT_ID_CLAIM, id)
+                .claim(JWT_ROLE_CLAIM, role)
                 .compact();
         return new JwtToken(token);
     }
 
-    private static Claims getClaimsFromToken( String token){
+    public Claims parseClaims(String token){
+        return parser.parseClaimsJws(refactorToken(token)).getBody();
+    }
+
+    public Claims getClaimsFromToken(String token){
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(generateKey()).build()
-                    .parseClaimsJws(refactorToken(token)).getBody();
-        }catch (JwtException ex){
-            log.error(String.format("Invalid token %s", ex.getMessage()));
+            return parseClaims(token);
+        }catch (JwtException | IllegalArgumentException ex){
+            log.debug("Invalid token {}", ex.getMessage());
         }
         return null;
     }
 
-    public static String getUserFromToken(String token){
+    public String getUserFromToken(String token){
         return Objects.requireNonNull(getClaimsFromToken(token)).getSubject();
     }
 
-    public static boolean isTokenValid(String token){
-        try {
-             Jwts.parserBuilder()
-                    .setSigningKey(generateKey()).build()
-                    .parseClaimsJws(refactorToken(token));
-             return true;
+    public boolean isTokenValid(String token){
+        return getClaimsFromToken(token) != null;
+    }
 
-        }catch (JwtException ex){
-            log.error(String.format("Invalid token %s", ex.getMessage()));
+    private Key resolveKey(String keyId){
+        if (keyId == null){
+            return signingKey;
         }
-        return false;
+        Key key = verificationKeys.get(keyId);
+        if (key == null){
+            throw new SignatureException(String.format("Unknown signing key id %s", keyId));
+        }
+        return key;
+    }
+
+    private static Map<String, Key> parseVerificationKeys(String verificationKeys){
+        Map<String, Key> keys = new HashMap<>();
+        for (String entry : verificationKeys.split(",")){
+            if (entry.isBlank()){
+                continue;
+            }
+            int separator = entry.indexOf('=');
+            if (separator <= 0){
+                throw new IllegalArgumentException("api.jwt.verification-keys entries must be in the form <kid>=<secret>");
+            }
+            keys.put(entry.substring(0, separator).trim(), toKey(entry.substring(separator + 1).trim()));
+        }
+        return keys;
     }
+
+    private static Key toKey(String secret){
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
     private static String refactorToken(String token){
         if(token.contains(JWT_BEARER)){
             return token.substring(JWT_BEARER.length());
         }
         return token;
     }
-}
\ No newline at end of file
+}
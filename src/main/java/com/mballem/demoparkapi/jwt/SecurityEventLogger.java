@@ -0,0 +1,118 @@
+package com.mballem.demoparkapi.jwt;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.UnsupportedJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class SecurityEventLogger {
+    private static final Logger log = LoggerFactory.getLogger("security.events");
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final MeterRegistry registry;
+    private final int logLimitPerWindow;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicReference<Window> window = new AtomicReference<>(new Window(windowStart(System.currentTimeMillis())));
+
+    public SecurityEventLogger(MeterRegistry registry,
+                               @Value("${api.security.events.log-limit-per-minute:20}") int logLimitPerWindow) {
+        this.registry = registry;
+        this.logLimitPerWindow = logLimitPerWindow;
+    }
+
+    public static String reason(RuntimeException ex) {
+        if (ex instanceof ExpiredJwtException) {
+            return "expired";
+        }
+        if (ex instanceof SignatureException) {
+            return "signature";
+        }
+        if (ex instanceof MalformedJwtException || ex instanceof IllegalArgumentException) {
+            return "malformed";
+        }
+        if (ex instanceof UnsupportedJwtException) {
+            return "unsupported";
+        }
+        return "invalid";
+    }
+
+    public void tokenRejected(String reason, HttpServletRequest request) {
+        counters.computeIfAbsent(reason, key -> Counter.builder("security.jwt.rejections")
+                .tag("reason", key)
+                .register(registry)).increment();
+
+        Window current = currentWindow();
+        current.counts.computeIfAbsent(reason, key -> new LongAdder()).increment();
+        if (current.logged.incrementAndGet() <= logLimitPerWindow && log.isWarnEnabled()) {
+            log.warn("security_event=jwt_rejected reason={} method={} path={} remote={}",
+                    reason, request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        }
+    }
+
+    // Without new rejections nothing would rotate the window, so its summary would never be logged.
+    @Scheduled(fixedDelayString = "${api.security.events.flush-interval:PT10S}")
+    public void flushClosedWindow() {
+        currentWindow();
+    }
+
+    @PreDestroy
+    public void flush() {
+        logSummary(window.getAndSet(new Window(windowStart(System.currentTimeMillis()))));
+    }
+
+    private Window currentWindow() {
+        long start = windowStart(System.currentTimeMillis());
+        Window current = window.get();
+        while (current.start < start) {
+            Window next = new Window(start);
+            if (window.compareAndSet(current, next)) {
+                logSummary(current);
+                return next;
+            }
+            current = window.get();
+        }
+        return current;
+    }
+
+    private void logSummary(Window closed) {
+        int suppressed = Math.max(closed.logged.get() - logLimitPerWindow, 0);
+        if (closed.counts.isEmpty() || !log.isWarnEnabled()) {
+            return;
+        }
+        Map<String, Long> counts = new TreeMap<>();
+        closed.counts.forEach((reason, count) -> counts.put(reason, count.sum()));
+        log.warn("security_event=jwt_rejections_summary window_start={} counts={} suppressed={}",
+                closed.start, counts, suppressed);
+    }
+
+    private static long windowStart(long millis) {
+        return millis - millis % WINDOW_MILLIS;
+    }
+
+    private static final class Window {
+        private final long start;
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+        private final AtomicInteger logged = new AtomicInteger();
+
+        private Window(long start) {
+            this.start = start;
+        }
+    }
+}
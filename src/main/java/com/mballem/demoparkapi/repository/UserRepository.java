@@ -1,15 +1,52 @@
 package com.mballem.demoparkapi.repository;
 
 import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserCredentials;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+import com.mballem.demoparkapi.repository.projection.UserView;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
 
+    Optional<UserCredentials> findCredentialsByUsername(String username);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("SELECT u.role FROM User u WHERE u.username = :username")
     User.Role findRoleByUsername(String username);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    Set<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    Optional<UserSnapshot> findSnapshotById(Long id);
+
+    Optional<UserSnapshot> findSnapshotByUsername(String username);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password, u.version = u.version + 1, u.modifyDate = :modifyDate, u.modifiedBy = :modifiedBy " +
+            "WHERE u.id = :id AND u.version = :version")
+    int updatePassword(@Param("id") Long id, @Param("version") Long version, @Param("password") String password,
+                       @Param("modifyDate") LocalDateTime modifyDate, @Param("modifiedBy") String modifiedBy);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id AND u.password = :currentPassword")
+    int upgradePasswordHash(@Param("id") Long id, @Param("currentPassword") String currentPassword, @Param("password") String password);
+
+    List<UserView> findViewByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    Slice<UserView> findViewBy(Pageable pageable);
 }
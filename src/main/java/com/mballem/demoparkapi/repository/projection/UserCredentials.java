@@ -0,0 +1,6 @@
+package com.mballem.demoparkapi.repository.projection;
+
+import com.mballem.demoparkapi.entity.User;
+
+public record UserCredentials(Long id, String username, String password, User.Role role) {
+}
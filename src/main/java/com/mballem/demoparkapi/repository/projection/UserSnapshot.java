@@ -0,0 +1,18 @@
+package com.mballem.demoparkapi.repository.projection;
+
+import com.mballem.demoparkapi.entity.User;
+
+import java.time.LocalDateTime;
+
+public record UserSnapshot(Long id, String username, User.Role role, LocalDateTime modifyDate, Long version) {
+    public static UserSnapshot of(User user) {
+        return new UserSnapshot(user.getId(), user.getUsername(), user.getRole(), user.getModifyDate(), user.getVersion());
+    }
+
+    public UserSnapshot newest(UserSnapshot other) {
+        if (version == null || other.version == null) {
+            return other;
+        }
+        return other.version >= version ? other : this;
+    }
+}
@@ -0,0 +1,13 @@
+package com.mballem.demoparkapi.repository.projection;
+
+import com.mballem.demoparkapi.entity.User;
+
+public record UserView(Long id, String username, User.Role role) {
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getUsername(), user.getRole());
+    }
+
+    public static UserView of(UserSnapshot user) {
+        return new UserView(user.id(), user.username(), user.role());
+    }
+}
@@ -0,0 +1,34 @@
+package com.mballem.demoparkapi.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+@Slf4j
+public class BCryptStrengthCalibrator {
+    private static final int BASE_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 20;
+    private static final String SAMPLE_PASSWORD = "calibration-password";
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(Duration target, int minStrength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(BASE_STRENGTH);
+        encoder.encode(SAMPLE_PASSWORD);
+
+        long start = System.nanoTime();
+        encoder.encode(SAMPLE_PASSWORD);
+        long elapsed = Math.max(System.nanoTime() - start, 1);
+
+        // every extra round doubles the work, so the strength grows with log2 of the ratio
+        double ratio = (double) target.toNanos() / elapsed;
+        int strength = BASE_STRENGTH + (int) Math.round(Math.log(ratio) / Math.log(2));
+        strength = Math.max(minStrength, Math.min(MAX_STRENGTH, strength));
+
+        log.info("BCrypt strength {} selected: strength {} took {} ms, target is {} ms",
+                strength, BASE_STRENGTH, elapsed / 1_000_000, target.toMillis());
+        return strength;
+    }
+}
@@ -0,0 +1,133 @@
+package com.mballem.demoparkapi.security;
+
+import com.mballem.demoparkapi.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final ThreadPoolExecutor batchExecutor;
+    private final Duration timeout;
+    private final Duration batchTimeout;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final ObservationRegistry observationRegistry;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity, int batchThreads, int batchQueueCapacity,
+                                  Duration timeout, Duration batchTimeout, MeterRegistry registry, ObservationRegistry observationRegistry) {
+        this.delegate = delegate;
+        this.observationRegistry = observationRegistry;
+        this.timeout = timeout;
+        this.batchTimeout = batchTimeout;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(registry, executor, "password-hashing");
+        CustomizableThreadFactory batchThreadFactory = new CustomizableThreadFactory("password-hashing-batch-");
+        batchThreadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+        this.batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchQueueCapacity), batchThreadFactory, new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(registry, batchExecutor, "password-hashing-batch");
+        this.encodeTimer = Timer.builder("security.password.hashing")
+                .tag("operation", "encode")
+                .register(registry);
+        this.matchesTimer = Timer.builder("security.password.hashing")
+                .tag("operation", "matches")
+                .register(registry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute("encode", () -> delegate.encode(rawPassword), encodeTimer);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute("matches", () -> delegate.matches(rawPassword, encodedPassword), matchesTimer);
+    }
+
+    // Bulk imports hash on their own small, low-priority pool: a large batch never fills the queue that logins depend on.
+    // The pool queue and the wait are bounded too, so concurrent imports are rejected instead of holding requests open for minutes.
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        return Observation.createNotStarted("security.password", observationRegistry)
+                .lowCardinalityKeyValue("operation", "encode-batch")
+                .observe(() -> invokeAll(rawPasswords.stream()
+                        .<Callable<String>>map(raw -> () -> encodeTimer.recordCallable(() -> delegate.encode(raw)))
+                        .toList()));
+    }
+
+    private List<String> invokeAll(List<Callable<String>> tasks) {
+        try {
+            List<String> hashes = new ArrayList<>(tasks.size());
+            for (Future<String> future : batchExecutor.invokeAll(tasks, batchTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                hashes.add(future.get());
+            }
+            return hashes;
+        } catch (RejectedExecutionException ex) {
+            throw new PasswordHashingUnavailableException("Password hashing of batches is overloaded, try again later");
+        } catch (CancellationException ex) {
+            throw new PasswordHashingUnavailableException("Password hashing of the batch timed out, try a smaller batch");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Password hashing interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T execute(String operation, Callable<T> task, Timer timer) {
+        return Observation.createNotStarted("security.password", observationRegistry)
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(() -> submit(task, timer));
+    }
+
+    private <T> T submit(Callable<T> task, Timer timer) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timer.recordCallable(task));
+        } catch (RejectedExecutionException ex) {
+            throw new PasswordHashingUnavailableException("Password hashing is overloaded, try again later");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new PasswordHashingUnavailableException("Password hashing timed out, try again later");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Password hashing interrupted");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        batchExecutor.shutdown();
+    }
+}
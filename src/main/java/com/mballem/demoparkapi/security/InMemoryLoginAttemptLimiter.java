@@ -0,0 +1,182 @@
+package com.mballem.demoparkapi.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mballem.demoparkapi.exception.LoginRateLimitedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class InMemoryLoginAttemptLimiter implements LoginAttemptLimiter {
+    private final Cache<String, RateBucket> buckets;
+    private final Cache<String, FailureTracker> failures;
+    private final RateBucket.Policy usernamePolicy;
+    private final RateBucket.Policy addressPolicy;
+    private final int maxFailures;
+    private final long failureWindowMillis;
+    private final long lockoutMillis;
+    private final Counter lockedOut;
+    private final Counter usernameLimited;
+    private final Counter addressLimited;
+    private final Counter failed;
+
+    public InMemoryLoginAttemptLimiter(int usernameRequestsPerMinute, int usernameBurst,
+                                       int addressRequestsPerMinute, int addressBurst,
+                                       int maxFailures, Duration failureWindow, Duration lockout,
+                                       long maximumTrackedKeys, Duration idleEviction, MeterRegistry registry) {
+        this.usernamePolicy = new RateBucket.Policy(usernameRequestsPerMinute, usernameBurst);
+        this.addressPolicy = new RateBucket.Policy(addressRequestsPerMinute, addressBurst);
+        this.maxFailures = maxFailures;
+        this.failureWindowMillis = failureWindow.toMillis();
+        this.lockoutMillis = lockout.toMillis();
+        this.buckets = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maximumTrackedKeys)
+                .expireAfterAccess(idleEviction)
+                .recordStats()
+                .<String, RateBucket>build(), "login.rate-buckets");
+        this.failures = CaffeineCacheMetrics.monitor(registry, Caffeine.newBuilder()
+                .maximumSize(maximumTrackedKeys)
+                .expireAfterAccess(failureWindow.plus(lockout))
+                .recordStats()
+                .<String, FailureTracker>build(), "login.failures");
+        this.lockedOut = limitedCounter(registry, "lockout");
+        this.usernameLimited = limitedCounter(registry, "username-rate");
+        this.addressLimited = limitedCounter(registry, "address-rate");
+        this.failed = Counter.builder("security.login.failures").register(registry);
+    }
+
+    private static Counter limitedCounter(MeterRegistry registry, String reason) {
+        return Counter.builder("security.login.rejections")
+                .tag("reason", reason)
+                .register(registry);
+    }
+
+    @Override
+    public void checkAllowed(String username, String remoteAddress) {
+        long now = System.currentTimeMillis();
+        String user = normalize(username);
+
+        FailureTracker tracker = failures.getIfPresent(failureKey(user, remoteAddress));
+        long lockedFor = tracker == null ? 0 : tracker.lockedFor(now);
+        if (lockedFor > 0) {
+            lockedOut.increment();
+            throw new LoginRateLimitedException("Too many failed logins from this address, try again later", toSeconds(lockedFor));
+        }
+
+        long addressWait = buckets.get("ip:" + remoteAddress, key -> new RateBucket(addressPolicy)).tryAcquire(now);
+        if (addressWait > 0) {
+            addressLimited.increment();
+            throw new LoginRateLimitedException("Too many login attempts", toSeconds(addressWait));
+        }
+        long usernameWait = buckets.get("user:" + user, key -> new RateBucket(usernamePolicy)).tryAcquire(now);
+        if (usernameWait > 0) {
+            usernameLimited.increment();
+            throw new LoginRateLimitedException("Too many login attempts", toSeconds(usernameWait));
+        }
+    }
+
+    @Override
+    public void loginFailed(String username, String remoteAddress) {
+        failed.increment();
+        failures.get(failureKey(normalize(username), remoteAddress), key -> new FailureTracker())
+                .recordFailure(System.currentTimeMillis(), maxFailures, failureWindowMillis, lockoutMillis);
+    }
+
+    @Override
+    public void loginSucceeded(String username, String remoteAddress) {
+        failures.invalidate(failureKey(normalize(username), remoteAddress));
+    }
+
+    public void clear() {
+        buckets.invalidateAll();
+        failures.invalidateAll();
+    }
+
+    // Lockout is per username and address, so failed guesses from one client cannot lock the account for everyone else.
+    // The username-wide defence is the rate bucket above, which only throttles.
+    private static String failureKey(String user, String remoteAddress) {
+        return user + "|" + remoteAddress;
+    }
+
+    private static String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long toSeconds(long millis) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(millis + 999));
+    }
+
+    /**
+     * Token bucket expressed as the generic cell rate algorithm: a single "theoretical arrival time" updated by CAS.
+     */
+    static final class RateBucket {
+        record Policy(long emissionIntervalMillis, long burstToleranceMillis) {
+            Policy(int requestsPerMinute, int burst) {
+                this(60_000L / Math.max(requestsPerMinute, 1), (60_000L / Math.max(requestsPerMinute, 1)) * Math.max(burst - 1, 0));
+            }
+        }
+
+        private final Policy policy;
+        private final AtomicLong theoreticalArrival = new AtomicLong();
+
+        RateBucket(Policy policy) {
+            this.policy = policy;
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long current = theoreticalArrival.get();
+                long tat = Math.max(current, now);
+                long wait = tat - now - policy.burstToleranceMillis();
+                if (wait > 0) {
+                    return wait;
+                }
+                if (theoreticalArrival.compareAndSet(current, tat + policy.emissionIntervalMillis())) {
+                    return 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sliding window approximated from the current and previous fixed windows, swapped atomically.
+     */
+    static final class FailureTracker {
+        private record State(long windowStart, int previous, int current, long lockedUntil) {
+        }
+
+        private final AtomicReference<State> state = new AtomicReference<>(new State(0, 0, 0, 0));
+
+        long lockedFor(long now) {
+            return Math.max(state.get().lockedUntil() - now, 0);
+        }
+
+        void recordFailure(long now, int maxFailures, long windowMillis, long lockoutMillis) {
+            while (true) {
+                State current = state.get();
+                long windowStart = now - now % windowMillis;
+                int previous;
+                int count;
+                if (windowStart == current.windowStart()) {
+                    previous = current.previous();
+                    count = current.current() + 1;
+                } else {
+                    previous = windowStart - current.windowStart() == windowMillis ? current.current() : 0;
+                    count = 1;
+                }
+                double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+                double estimate = previous * previousWeight + count;
+                long lockedUntil = estimate >= maxFailures ? now + lockoutMillis : current.lockedUntil();
+                if (state.compareAndSet(current, new State(windowStart, previous, count, lockedUntil))) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mballem.demoparkapi.security;
+
+public interface LoginAttemptLimiter {
+    /**
+     * Throws {@link com.mballem.demoparkapi.exception.LoginRateLimitedException} when the attempt must be rejected
+     * before any credential check happens.
+     */
+    void checkAllowed(String username, String remoteAddress);
+
+    void loginFailed(String username, String remoteAddress);
+
+    void loginSucceeded(String username, String remoteAddress);
+}
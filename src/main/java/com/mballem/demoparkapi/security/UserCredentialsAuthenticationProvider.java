@@ -0,0 +1,95 @@
+package com.mballem.demoparkapi.security;
+
+import com.mballem.demoparkapi.exception.EntityNotFoundException;
+import com.mballem.demoparkapi.jwt.JwtUserDetails;
+import com.mballem.demoparkapi.repository.projection.UserCredentials;
+import com.mballem.demoparkapi.service.UserService;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class UserCredentialsAuthenticationProvider implements AuthenticationProvider {
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
+    private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final ObservationRegistry observationRegistry;
+    private volatile String userNotFoundEncodedPassword;
+
+    @Override
+    public Authentication authenticate(Authentication authentication) {
+        String username = authentication.getName();
+        if (authentication.getCredentials() == null) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        String password = authentication.getCredentials().toString();
+
+        UserCredentials credentials = phase("lookup", () -> findCredentials(username));
+        if (credentials == null) {
+            // Same BCrypt cost as a real check, so response time does not reveal unknown usernames.
+            phase("verify", () -> passwordEncoder.matches(password, userNotFoundEncodedPassword()));
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (!phase("verify", () -> passwordEncoder.matches(password, credentials.password()))) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        if (passwordEncoder.upgradeEncoding(credentials.password())) {
+            upgradePasswordHash(credentials, password);
+        }
+
+        JwtUserDetails principal = new JwtUserDetails(credentials.id(), credentials.username(),
+                credentials.role().name().substring("ROLE_".length()));
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    private UserCredentials findCredentials(String username) {
+        try {
+            return userService.findCredentialsByUsername(username);
+        } catch (EntityNotFoundException ex) {
+            return null;
+        }
+    }
+
+    // Best effort: the credentials are already verified, a failed or lost upgrade is retried on the next login.
+    private void upgradePasswordHash(UserCredentials credentials, String password) {
+        try {
+            boolean upgraded = phase("upgrade", () -> userService.upgradePasswordHash(credentials.id(), credentials.password(),
+                    passwordEncoder.encode(password)));
+            if (!upgraded) {
+                log.debug("Password hash of user {} changed concurrently, upgrade skipped", credentials.username());
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Password hash upgrade of user {} failed: {}", credentials.username(), ex.getMessage());
+        }
+    }
+
+    private String userNotFoundEncodedPassword() {
+        if (userNotFoundEncodedPassword == null) {
+            userNotFoundEncodedPassword = passwordEncoder.encode(USER_NOT_FOUND_PASSWORD);
+        }
+        return userNotFoundEncodedPassword;
+    }
+
+    private <T> T phase(String phase, Supplier<T> supplier) {
+        return Observation.createNotStarted("security.authentication", observationRegistry)
+                .lowCardinalityKeyValue("phase", phase)
+                .observe(supplier);
+    }
+}
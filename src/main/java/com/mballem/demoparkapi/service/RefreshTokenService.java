@@ -0,0 +1,93 @@
+package com.mballem.demoparkapi.service;
+
+import com.mballem.demoparkapi.entity.RefreshToken;
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.exception.InvalidRefreshTokenException;
+import com.mballem.demoparkapi.repository.RefreshTokenRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class RefreshTokenService {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final EntityManager entityManager;
+    @Value("${api.jwt.refresh-token.expiration:P14D}")
+    private Duration expiration;
+
+    public record IssuedRefreshToken(Long userId, String token) {
+    }
+
+    @Transactional
+    public IssuedRefreshToken issue(Long userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(digest(token));
+        refreshToken.setUser(entityManager.getReference(User.class, userId));
+        refreshToken.setExpiresAt(Instant.now().plus(expiration));
+        refreshTokenRepository.save(refreshToken);
+        return new IssuedRefreshToken(userId, token);
+    }
+
+    @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+    public IssuedRefreshToken rotate(String token) {
+        Instant now = Instant.now();
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(digest(token)).orElseThrow(
+                () -> new InvalidRefreshTokenException("invalid refresh token")
+        );
+        if (refreshToken.getExpiresAt().isBefore(now)) {
+            throw new InvalidRefreshTokenException("invalid refresh token");
+        }
+        Long userId = refreshToken.getUser().getId();
+        if (refreshToken.getRevokedAt() != null || refreshTokenRepository.revokeIfActive(refreshToken.getId(), now) == 0) {
+            log.warn("Reuse of a rotated refresh token for user id={}, revoking all of its refresh tokens", userId);
+            refreshTokenRepository.revokeAllByUserId(userId, now);
+            throw new InvalidRefreshTokenException("invalid refresh token");
+        }
+        return issue(userId);
+    }
+
+    @Transactional
+    public void revokeAll(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId, Instant.now());
+    }
+
+    @Scheduled(fixedDelayString = "${api.jwt.refresh-token.purge-interval:PT1H}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired refresh tokens", deleted);
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
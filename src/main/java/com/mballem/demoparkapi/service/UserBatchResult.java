@@ -0,0 +1,18 @@
+package com.mballem.demoparkapi.service;
+
+import com.mballem.demoparkapi.entity.User;
+
+public record UserBatchResult(int index, User user, RuntimeException error) {
+
+    public static UserBatchResult created(int index, User user) {
+        return new UserBatchResult(index, user, null);
+    }
+
+    public static UserBatchResult failed(int index, User user, RuntimeException error) {
+        return new UserBatchResult(index, user, error);
+    }
+
+    public boolean isCreated() {
+        return error == null;
+    }
+}
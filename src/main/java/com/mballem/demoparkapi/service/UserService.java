@@ -1,43 +1,135 @@
 package com.mballem.demoparkapi.service;
 
+import com.mballem.demoparkapi.cache.UserCache;
+import com.mballem.demoparkapi.datasource.ReplicaRoutingDataSource;
 import com.mballem.demoparkapi.entity.User;
-import com.mballem.demoparkapi.expection.EntityNotFoundException;
-import com.mballem.demoparkapi.expection.PasswordInvalidException;
-import com.mballem.demoparkapi.expection.UsernameUniqueViolationException;
+import com.mballem.demoparkapi.exception.EntityNotFoundException;
+import com.mballem.demoparkapi.exception.PasswordInvalidException;
+import com.mballem.demoparkapi.exception.UsernameUniqueViolationException;
+import com.mballem.demoparkapi.jwt.JwtRevocationRegistry;
 import com.mballem.demoparkapi.repository.UserRepository;
+import com.mballem.demoparkapi.repository.projection.UserCredentials;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+import com.mballem.demoparkapi.repository.projection.UserView;
+import com.mballem.demoparkapi.security.BoundedPasswordEncoder;
 import com.mballem.demoparkapi.web.dto.UserCreateDto;
+import io.micrometer.observation.annotation.Observed;
+import org.hibernate.exception.ConstraintViolationException;
 import org.mindrot.jbcrypt.BCrypt;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+@Observed(name = "user.service")
 @RequiredArgsConstructor
 @Service
 public class UserService {
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final JwtRevocationRegistry revocationRegistry;
+    private final UserCache userCache;
+    private final RefreshTokenService refreshTokenService;
+    private final AuditorAware<String> auditorAware;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+    private static final int EXISTING_LOOKUP_CHUNK = 1000;
+    private static final int EXPORT_CHUNK = 500;
+    private static final String USERNAME_CONSTRAINT = "uk_users_username";
     @Transactional
     public User createUser(User user, String password) {
         try{
+            user.setUsername(normalizeUsername(user.getUsername()));
             user.setPassword(passwordEncoder.encode(user.getPassword()));
-            return userRepository.save(user);
-        }catch (org.springframework.dao.DataIntegrityViolationException ex){
-            throw new UsernameUniqueViolationException(String.format("Username %s yet exists", user.getUsername()));
+            User created = userRepository.saveAndFlush(user);
+            evictAfterCompletion(created);
+            return created;
+        }catch (DataIntegrityViolationException ex){
+            if (isUsernameViolation(ex)){
+                throw new UsernameUniqueViolationException(String.format("Username %s yet exists", user.getUsername()));
+            }
+            throw ex;
         }
 
     }
-    @Transactional(readOnly = true)
-    public User findById(Long id) {
-        return userRepository.findById(id).orElseThrow(
-                () -> new EntityNotFoundException(String.format("User id=%s yet exists", id))
-        );
+    public List<UserBatchResult> createUsers(List<User> users) {
+        users.forEach(user -> user.setUsername(normalizeUsername(user.getUsername())));
+        Set<String> existing = findExistingUsernames(users);
+        Set<String> seen = new HashSet<>();
+        List<UserBatchResult> results = new ArrayList<>(users.size());
+        List<User> accepted = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            if (existing.contains(user.getUsername()) || !seen.add(user.getUsername())) {
+                results.add(UserBatchResult.failed(i, user, new UsernameUniqueViolationException(String.format("Username %s yet exists", user.getUsername()))));
+            } else {
+                results.add(UserBatchResult.created(i, user));
+                accepted.add(user);
+            }
+        }
+
+        List<String> hashes = passwordEncoder.encodeAll(accepted.stream().map(User::getPassword).toList());
+        for (int i = 0; i < accepted.size(); i++) {
+            accepted.get(i).setPassword(hashes.get(i));
+        }
+
+        try {
+            userRepository.saveAll(accepted);
+        } catch (DataIntegrityViolationException ex) {
+            if (isUsernameViolation(ex)) {
+                throw new UsernameUniqueViolationException("Some usernames were created concurrently, no user of the batch was created");
+            }
+            throw ex;
+        }
+        return results;
     }
 
-    @Transactional
-    public User updatePassword(Long id, String currentPassword, String newPassword, String confirmPassword) {
+    // Any other violation, like a primary key collision, is a server error and must not be reported as a taken username.
+    private static boolean isUsernameViolation(DataIntegrityViolationException ex) {
+        return ex.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(USERNAME_CONSTRAINT);
+    }
+
+    private Set<String> findExistingUsernames(List<User> users) {
+        List<String> usernames = users.stream().map(User::getUsername).distinct().toList();
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < usernames.size(); from += EXISTING_LOOKUP_CHUNK) {
+            existing.addAll(userRepository.findExistingUsernames(usernames.subList(from, Math.min(from + EXISTING_LOOKUP_CHUNK, usernames.size()))));
+        }
+        return existing;
+    }
+
+    public UserSnapshot findById(Long id) {
+        return userCache.getById(id).orElseGet(() -> {
+            UserSnapshot user = readOnly(() -> userRepository.findSnapshotById(id)).orElseThrow(
+                    () -> new EntityNotFoundException(String.format("User id=%s yet exists", id))
+            );
+            cache(user);
+            return user;
+        });
+    }
+
+    public void updatePassword(Long id, String currentPassword, String newPassword, String confirmPassword) {
         if(currentPassword.equals(newPassword)){
             throw new PasswordInvalidException("you don't can use your actual password");
         }
@@ -45,29 +137,124 @@ public class UserService {
             throw new PasswordInvalidException("New password don't match");
         }
 
-        User user = findById(id);
+        User user = loadById(id);
         if (!passwordEncoder.matches(currentPassword, user.getPassword())){
             throw new PasswordInvalidException("passwords don't match");
         }
 
-        user.setPassword(passwordEncoder.encode(newPassword));
-        return user;
+        String encoded = passwordEncoder.encode(newPassword);
+        // Only the conditional UPDATE runs in the transaction, both BCrypt calls stay outside of it.
+        transactionTemplate.executeWithoutResult(status -> {
+            int updated = userRepository.updatePassword(id, user.getVersion(), encoded, LocalDateTime.now(),
+                    auditorAware.getCurrentAuditor().orElse(null));
+            evictAfterCompletion(user);
+            if (updated == 0){
+                throw new OptimisticLockingFailureException(String.format("User id=%s was modified concurrently, try again", id));
+            }
+            refreshTokenService.revokeAll(id);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revocationRegistry.revokeTokensIssuedBefore(user.getUsername(), Instant.now());
+                }
+            });
+        });
+    }
+
+    // Only replaces the hash that was just verified, so a concurrent upgrade or password change wins without a conflict.
+    @Transactional
+    public boolean upgradePasswordHash(Long id, String currentEncodedPassword, String encodedPassword) {
+        return userRepository.upgradePasswordHash(id, currentEncodedPassword, encodedPassword) == 1;
     }
 
     @Transactional(readOnly = true)
-    public List<User> getAllUsers() {
-        return userRepository.findAll();
+    public Slice<UserView> getUsersAfter(Long cursor, int size) {
+        List<UserView> users = userRepository.findViewByIdGreaterThanOrderByIdAsc(cursor == null ? 0L : cursor, PageRequest.of(0, size + 1));
+        boolean hasNext = users.size() > size;
+
+        return new SliceImpl<>(hasNext ? users.subList(0, size) : users, PageRequest.of(0, size), hasNext);
     }
 
     @Transactional(readOnly = true)
-    public User findByUsername(String username){
-        return userRepository.findByUsername(username).orElseThrow(
+    public Slice<UserView> getUsersPage(int page, int size) {
+        return userRepository.findViewBy(PageRequest.of(page, size, Sort.by("id")));
+    }
+
+    // Keyset-paged in one short read-only transaction per chunk: a slow client never holds a pooled connection for the whole export.
+    public void exportUsers(Consumer<UserView> consumer) {
+        long cursor = 0;
+        List<UserView> users;
+        do {
+            long after = cursor;
+            users = readOnly(() -> userRepository.findViewByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, EXPORT_CHUNK)));
+            users.forEach(consumer);
+            if (!users.isEmpty()) {
+                cursor = users.get(users.size() - 1).id();
+            }
+        } while (users.size() == EXPORT_CHUNK);
+    }
+
+    public UserSnapshot findByUsername(String username){
+        String normalized = normalizeUsername(username);
+        return userCache.getByUsername(normalized).orElseGet(() -> {
+            UserSnapshot user = readOnly(() -> userRepository.findSnapshotByUsername(normalized)).orElseThrow(
+                    () -> new EntityNotFoundException(String.format("User %s don't exists", username))
+            );
+            cache(user);
+            return user;
+        });
+    }
+
+    public User.Role findRoleByUsername(String username) {
+        String normalized = normalizeUsername(username);
+        return userCache.getByUsername(normalized)
+                .map(UserSnapshot::role)
+                .orElseGet(() -> readOnly(() -> userRepository.findRoleByUsername(normalized)));
+    }
+
+    // Never served from a cache: neither UserCache nor the Hibernate second-level cache holds password hashes.
+    // Read from the primary, a lagging replica would still accept a password that was just changed.
+    public UserCredentials findCredentialsByUsername(String username) {
+        String normalized = normalizeUsername(username);
+        return ReplicaRoutingDataSource.onPrimary(() -> readOnly(() -> userRepository.findCredentialsByUsername(normalized))).orElseThrow(
                 () -> new EntityNotFoundException(String.format("User %s don't exists", username))
         );
     }
 
-    @Transactional(readOnly = true)
-    public User.Role findRoleByUsername(String username) {
-        return userRepository.findRoleByUsername(username);
+    public static String normalizeUsername(String username) {
+        return username == null ? null : username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // The version and hash read here guard the following update, so they come from the primary.
+    private User loadById(Long id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> readOnly(() -> userRepository.findById(id))).orElseThrow(
+                () -> new EntityNotFoundException(String.format("User id=%s yet exists", id))
+        );
+    }
+
+    private <T> T readOnly(Supplier<T> read) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> read.get());
+    }
+
+    // A replica read may predate an update that already evicted this user, so it is only cached while no replica lags.
+    private void cache(UserSnapshot user) {
+        ReplicaRoutingDataSource routing = replicaRouting.getIfAvailable();
+        if (routing == null || routing.isCaughtUp()) {
+            userCache.put(user);
+        }
+    }
+
+    private void evictAfterCompletion(User user) {
+        userCache.evict(user);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.evict(user);
+                }
+            });
+        }
     }
 }
@@ -1,7 +1,10 @@
 package com.mballem.demoparkapi.web.controller;
 
 import com.mballem.demoparkapi.jwt.JwtToken;
+import com.mballem.demoparkapi.jwt.JwtUserDetails;
 import com.mballem.demoparkapi.jwt.JwtUserDetailsService;
+import com.mballem.demoparkapi.security.LoginAttemptLimiter;
+import com.mballem.demoparkapi.web.dto.RefreshTokenDto;
 import com.mballem.demoparkapi.web.dto.UserLoginDto;
 import com.mballem.demoparkapi.web.exception.ErrorMessage;
 import io.swagger.v3.oas.annotations.Operation;
@@ -16,6 +19,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -29,6 +33,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AuthenticationController {
     private final JwtUserDetailsService detailsService;
     private final AuthenticationManager authenticationManager;
+    private final LoginAttemptLimiter loginAttemptLimiter;
 
     @Operation(summary = "Post login", description = "Resource to login with user and password",
             responses = {
@@ -36,23 +41,46 @@ public class AuthenticationController {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
                     @ApiResponse(responseCode = "422", description = "Unprocessable Entity", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+                    @ApiResponse(responseCode = "429", description = "Too many login attempts", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
             })
     @PostMapping("/auth")
     public ResponseEntity<?> authentication(@RequestBody @Valid UserLoginDto dto, HttpServletRequest request){
+        loginAttemptLimiter.checkAllowed(dto.getUsername(), request.getRemoteAddr());
         try {
             UsernamePasswordAuthenticationToken authenticationToken =
                     new UsernamePasswordAuthenticationToken(dto.getUsername(), dto.getPassword());
 
-            authenticationManager.authenticate(authenticationToken);
+            Authentication authentication = authenticationManager.authenticate(authenticationToken);
+
+            loginAttemptLimiter.loginSucceeded(dto.getUsername(), request.getRemoteAddr());
 
-            JwtToken token = detailsService.getTokenAuthenticated(dto.getUsername());
+            JwtToken token = detailsService.getTokenAuthenticated((JwtUserDetails) authentication.getPrincipal());
 
             return ResponseEntity.ok(token);
         }catch (AuthenticationException ex){
+            loginAttemptLimiter.loginFailed(dto.getUsername(), request.getRemoteAddr());
             log.warn("Bad credentials from username {}", ex.getMessage());
         }
         return  ResponseEntity
                 .badRequest()
                 .body(new ErrorMessage(request, HttpStatus.BAD_REQUEST, "invalid credentials"));
     }
+
+    @Operation(summary = "Post refresh", description = "Resource to exchange a refresh token for a new access token and a new refresh token. " +
+            "Every refresh token can be used only once, reusing it revokes all refresh tokens of the user.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Tokens issued",content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = JwtToken.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid, expired or revoked refresh token",content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+                    @ApiResponse(responseCode = "422", description = "Unprocessable Entity", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+            })
+    @PostMapping("/auth/refresh")
+    public ResponseEntity<JwtToken> refresh(@RequestBody @Valid RefreshTokenDto dto){
+        JwtToken token = detailsService.refreshTokenAuthenticated(dto.getRefreshToken());
+
+        return ResponseEntity.ok(token);
+    }
 }
@@ -1,12 +1,20 @@
 package com.mballem.demoparkapi.web.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+import com.mballem.demoparkapi.repository.projection.UserView;
 import com.mballem.demoparkapi.service.UserService;
+import com.mballem.demoparkapi.service.UserBatchResult;
+import com.mballem.demoparkapi.web.dto.UserBatchCreateDto;
+import com.mballem.demoparkapi.web.dto.UserBatchResultDto;
 import com.mballem.demoparkapi.web.dto.UserCreateDto;
 import com.mballem.demoparkapi.web.dto.UserPasswordDto;
 import com.mballem.demoparkapi.web.dto.UserResponseDto;
 import com.mballem.demoparkapi.web.dto.mapper.UserMapper;
 import com.mballem.demoparkapi.web.exception.ErrorMessage;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -15,11 +23,25 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 @Tag(name = "Users", description = "This set of information includes all the required details for implementing user creation, updating (patching), and reading functionalities in the API documentation.")
 @RequiredArgsConstructor
@@ -27,6 +49,10 @@ import java.util.List;
 @RequestMapping("api/v1/users")
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final ObservationRegistry observationRegistry;
+    @Value("${api.users.page.max-size:100}")
+    private int maxPageSize;
     @Operation(summary = "Create a new user", description = "Resource for creating a new user.",
     responses = {
             @ApiResponse(responseCode = "201", description = "created with successfully",content =
@@ -45,19 +71,48 @@ public class UserController {
 
         return ResponseEntity.status(HttpStatus.CREATED).body(UserMapper.toDto(createdUser));
     }
+    @Operation(summary = "Create users in batch", description = "Resource for importing many users in one request. " +
+            "Every item gets its own result, in request order: 201 with the created user or 409 when the username already exists. " +
+            "A batch holds at most " + UserBatchCreateDto.MAX_USERS + " users, larger imports send several batches.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "batch processed, see the status of each item",content =
+                    @Content(mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = UserBatchResultDto.class)))),
+                    @ApiResponse(responseCode = "409", description = "usernames created concurrently, nothing was created", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+                    @ApiResponse(responseCode = "422", description = "Resource not processed due to invalid input data", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+                    @ApiResponse(responseCode = "503", description = "too many batches being hashed, retry after the Retry-After delay", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class)))
+            })
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserBatchResultDto>> createBatch(@Valid @RequestBody UserBatchCreateDto batchDto){
+        List<User> usersToCreate = batchDto.getUsers().stream().map(UserMapper::toUser).toList();
+        List<UserBatchResult> results = userService.createUsers(usersToCreate);
+
+        return ResponseEntity.ok(UserMapper.toBatchResultDto(results));
+    }
     @Operation(summary = "Retrieve a user by ID", description = "Resource to search for user by ID.",
             responses = {
                     @ApiResponse(responseCode = "200", description = "user found with successfully",content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = UserResponseDto.class))),
+                    @ApiResponse(responseCode = "304", description = "user not modified since the ETag or date sent in If-None-Match or If-Modified-Since"),
                     @ApiResponse(responseCode = "404", description = "user not found", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class
                     ))),
     })
     @GetMapping("/{id}")
-    public ResponseEntity<UserResponseDto> getById(@PathVariable Long id){
-        User user = userService.findById(id);
+    public ResponseEntity<UserResponseDto> getById(@PathVariable Long id, WebRequest webRequest){
+        UserSnapshot user = userService.findById(id);
+        UserVersion version = UserVersion.of(user);
+        if (webRequest.checkNotModified(version.eTag(), version.lastModified())){
+            return null;
+        }
 
-        return ResponseEntity.ok(UserMapper.toDto(user));
+        return ResponseEntity.ok()
+                .eTag(version.eTag())
+                .lastModified(version.lastModified())
+                .body(UserMapper.toDto(UserView.of(user)));
     }
     @Operation(summary = "Patch password", description = "Resource to patch password by user ID",
             responses = {
@@ -67,24 +122,108 @@ public class UserController {
                     @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
                     @ApiResponse(responseCode = "404", description = "Resource not found", content =
                     @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
+                    @ApiResponse(responseCode = "409", description = "User modified concurrently, retry with fresh data", content =
+                    @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorMessage.class))),
             })
     @PatchMapping("/{id}")
     public ResponseEntity<Void> updatePassword( @PathVariable Long id,@Valid @RequestBody UserPasswordDto dto){
-        User userFound = userService.updatePassword(id, dto.getActualPassword(), dto.getNewPassword(), dto.getConfirmPassword());
+        userService.updatePassword(id, dto.getActualPassword(), dto.getNewPassword(), dto.getConfirmPassword());
 
         return ResponseEntity.noContent().build();
     }
-    @Operation(summary = "Get all users", description = "Resource to get all registered users",
+    @Operation(summary = "Get all users", description = "Resource to list registered users ordered by id. " +
+            "Pages are selected by 'cursor' (last id of the previous page) or by 'page'; the next page is advertised in the Link header.",
             responses = {
-                    @ApiResponse(responseCode = "200", description = "List with all registered users",content =
+                    @ApiResponse(responseCode = "200", description = "List with registered users",content =
                     @Content(mediaType = "application/json",
                     array = @ArraySchema(schema = @Schema(implementation = UserResponseDto.class)))),
+                    @ApiResponse(responseCode = "304", description = "page not modified since the ETag sent in If-None-Match"),
             })
     @GetMapping()
-    public ResponseEntity<List<UserResponseDto>> getAll(){
-        List<User> users = userService.getAllUsers();
+    public ResponseEntity<List<UserResponseDto>> getAll(@RequestParam(required = false) Long cursor,
+                                                        @RequestParam(required = false) Integer page,
+                                                        @RequestParam(defaultValue = "20") int size,
+                                                        WebRequest webRequest){
+        int pageSize = Math.max(1, Math.min(size, maxPageSize));
+        Slice<UserView> users = page != null
+                ? userService.getUsersPage(Math.max(page, 0), pageSize)
+                : userService.getUsersAfter(cursor, pageSize);
+        String eTag = eTag(users);
+        if (webRequest.checkNotModified(eTag)){
+            return null;
+        }
 
-        return ResponseEntity.ok(UserMapper.toListDto(users));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (users.hasNext()){
+            UriComponentsBuilder next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("size", pageSize);
+            if (page != null){
+                next.replaceQueryParam("page", users.getNumber() + 1);
+            } else {
+                next.replaceQueryParam("cursor", users.getContent().get(users.getNumberOfElements() - 1).id());
+            }
+            response.header(HttpHeaders.LINK, String.format("<%s>; rel=\"next\"", next.toUriString()));
+        }
+        List<UserResponseDto> body = Observation.createNotStarted("user.mapper", observationRegistry)
+                .lowCardinalityKeyValue("conversion", "list")
+                .observe(() -> UserMapper.toViewListDto(users.getContent()));
+        return response.body(body);
+    }
+    @Operation(summary = "Export all users", description = "Resource to stream every registered user as NDJSON (default) or CSV",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "One user per line, ordered by id",content = {
+                    @Content(mediaType = "application/x-ndjson", schema = @Schema(implementation = UserResponseDto.class)),
+                    @Content(mediaType = "text/csv")}),
+            })
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format){
+        boolean csv = "csv".equalsIgnoreCase(format);
+
+        StreamingResponseBody body = out -> {
+            if (csv){
+                out.write("id,username,role\r\n".getBytes(StandardCharsets.UTF_8));
+            }
+            userService.exportUsers(user -> {
+                UserResponseDto dto = UserMapper.toDto(user);
+                try {
+                    if (csv){
+                        out.write(String.format("%d,%s,%s\r\n", dto.getId(), csvField(dto.getUsername()), csvField(dto.getRole()))
+                                .getBytes(StandardCharsets.UTF_8));
+                    } else {
+                        out.write(objectMapper.writeValueAsBytes(dto));
+                        out.write('\n');
+                    }
+                } catch (IOException ex){
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
+    // RFC 4180: a field holding a separator, quote or line break is quoted, with its quotes doubled.
+    private static String csvField(String value){
+        if (value == null){
+            return "";
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')){
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String eTag(Slice<UserView> users){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (UserView user : users.getContent()){
+                digest.update(String.format("%d:%s:%s;", user.id(), user.username(), user.role()).getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(users.hasNext() ? (byte) 1 : (byte) 0);
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException ex){
+            throw new IllegalStateException(ex);
+        }
+    }
 }
@@ -0,0 +1,20 @@
+package com.mballem.demoparkapi.web.controller;
+
+import com.mballem.demoparkapi.repository.projection.UserSnapshot;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+record UserVersion(Long id, Long version, LocalDateTime modifyDate) {
+    public static UserVersion of(UserSnapshot user) {
+        return new UserVersion(user.id(), user.version(), user.modifyDate());
+    }
+
+    public String eTag() {
+        return String.format("\"%d-%d\"", id, version == null ? 0 : version);
+    }
+
+    public long lastModified() {
+        return modifyDate == null ? -1 : modifyDate.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
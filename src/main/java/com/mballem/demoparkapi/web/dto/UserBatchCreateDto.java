@@ -0,0 +1,19 @@
+package com.mballem.demoparkapi.web.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @ToString
+public class UserBatchCreateDto {
+    // At the calibrated bcrypt cost one batch thread hashes this many users within the batch timeout, larger imports send several batches
+    public static final int MAX_USERS = 100;
+
+    @Valid
+    @NotEmpty
+    @Size(max = MAX_USERS)
+    private List<UserCreateDto> users;
+}
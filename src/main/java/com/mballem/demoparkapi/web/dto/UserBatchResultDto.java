@@ -0,0 +1,18 @@
+package com.mballem.demoparkapi.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class UserBatchResultDto {
+    private int index;
+    private int status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UserResponseDto user;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String message;
+}
@@ -1,36 +1,44 @@
 package com.mballem.demoparkapi.web.dto.mapper;
 
 import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.projection.UserView;
+import com.mballem.demoparkapi.service.UserBatchResult;
+import com.mballem.demoparkapi.web.dto.UserBatchResultDto;
 import com.mballem.demoparkapi.web.dto.UserCreateDto;
 import com.mballem.demoparkapi.web.dto.UserResponseDto;
 import org.modelmapper.ModelMapper;
-import org.modelmapper.PropertyMap;
+import org.springframework.http.HttpStatus;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 public class UserMapper {
+    private static final ModelMapper MAPPER = new ModelMapper();
+
     public static User toUser(UserCreateDto createDto){
-        return new ModelMapper().map(createDto, User.class);
+        return MAPPER.map(createDto, User.class);
     }
     public static UserResponseDto toDto(User user){
         String role = user.getRole().name().substring("ROLE_".length());
 
-        PropertyMap<User, UserResponseDto> props = new PropertyMap<User, UserResponseDto>() {
-            @Override
-            protected void configure() {
-                map().setRole(role);
-            }
-        };
-
-         ModelMapper mapper = new ModelMapper();
-
-         mapper.addMappings(props);
+        return new UserResponseDto(user.getId(), user.getUsername(), role);
+    }
+    public static UserResponseDto toDto(UserView view){
+        String role = view.role().name().substring("ROLE_".length());
 
-         return mapper.map(user, UserResponseDto.class);
+        return new UserResponseDto(view.id(), view.username(), role);
+    }
+    public static List<UserBatchResultDto> toBatchResultDto(List<UserBatchResult> results){
+        return results.stream().map(result -> result.isCreated()
+                ? new UserBatchResultDto(result.index(), HttpStatus.CREATED.value(), toDto(result.user()), null)
+                : new UserBatchResultDto(result.index(), HttpStatus.CONFLICT.value(), null, result.error().getMessage())
+        ).collect(Collectors.toList());
     }
     public static List<UserResponseDto> toListDto(List<User> users){
         return users.stream().map(UserMapper::toDto).collect(Collectors.toList());
     }
+    public static List<UserResponseDto> toViewListDto(List<UserView> views){
+        return views.stream().map(UserMapper::toDto).collect(Collectors.toList());
+    }
 
 }
@@ -0,0 +1,14 @@
+-- Schema as created by hibernate.ddl-auto=update before Flyway. Existing databases are baselined at version 0,
+-- so this script also runs on them and must leave an existing users table untouched.
+CREATE TABLE IF NOT EXISTS users (
+    id          BIGINT       NOT NULL,
+    username    VARCHAR(100) NOT NULL,
+    password    VARCHAR(200) NOT NULL,
+    role        VARCHAR(25)  NOT NULL,
+    created_at  TIMESTAMP(6),
+    modify_at   TIMESTAMP(6),
+    created_by  VARCHAR(255),
+    modified_by VARCHAR(255),
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
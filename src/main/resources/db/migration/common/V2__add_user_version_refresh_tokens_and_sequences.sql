@@ -0,0 +1,24 @@
+-- Upgrades the pre-Flyway schema (IDENTITY ids, no optimistic locking, no refresh tokens). Every statement is
+-- guarded because databases that ran the application with ddl-auto=update may already have some of these objects.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+UPDATE users SET version = 0 WHERE version IS NULL;
+ALTER TABLE users ALTER COLUMN version SET DEFAULT 0;
+ALTER TABLE users ALTER COLUMN version SET NOT NULL;
+
+-- Repositioned above the existing ids by the vendor specific V2_1 script.
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+
+CREATE SEQUENCE IF NOT EXISTS refresh_tokens_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    id         BIGINT                      NOT NULL,
+    token_hash VARCHAR(64)                 NOT NULL,
+    user_id    BIGINT                      NOT NULL,
+    expires_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT pk_refresh_tokens PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash),
+    CONSTRAINT fk_refresh_tokens_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_user_id ON refresh_tokens (user_id);
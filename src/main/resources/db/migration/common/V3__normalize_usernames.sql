@@ -0,0 +1,6 @@
+-- Usernames that only differ by case must be resolved by an administrator before this migration runs:
+-- the unique constraint rejects the lower-casing below and the migration fails without changing any row.
+-- Find them with: SELECT LOWER(username), COUNT(*) FROM users GROUP BY LOWER(username) HAVING COUNT(*) > 1;
+UPDATE users SET username = LOWER(username) WHERE username <> LOWER(username);
+
+ALTER TABLE users ADD CONSTRAINT ck_users_username_lowercase CHECK (username = LOWER(username));
@@ -0,0 +1,2 @@
+-- Hibernate's pooled optimizer hands out (value - 49 .. value), so the next value must be max(id) + 50.
+ALTER SEQUENCE users_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM users);
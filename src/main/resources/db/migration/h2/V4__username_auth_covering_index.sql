@@ -0,0 +1 @@
+CREATE INDEX idx_users_username_auth ON users (username, id, role, password);
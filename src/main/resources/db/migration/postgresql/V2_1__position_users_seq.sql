@@ -0,0 +1,16 @@
+-- Hibernate's pooled optimizer hands out (value - 49 .. value), so the next value must be max(id) + 50.
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users), false);
+
+-- ddl-auto=update named the username unique constraint uk_<hash>, the application matches violations on uk_users_username.
+DO $$
+DECLARE
+    legacy_name TEXT;
+BEGIN
+    SELECT c.conname INTO legacy_name
+    FROM pg_constraint c
+    JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attnum = c.conkey[1]
+    WHERE c.conrelid = 'users'::regclass AND c.contype = 'u' AND array_length(c.conkey, 1) = 1 AND a.attname = 'username';
+    IF legacy_name IS NOT NULL AND legacy_name <> 'uk_users_username' THEN
+        EXECUTE format('ALTER TABLE users RENAME CONSTRAINT %I TO uk_users_username', legacy_name);
+    END IF;
+END $$;
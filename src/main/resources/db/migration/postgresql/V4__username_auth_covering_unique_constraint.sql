@@ -0,0 +1,6 @@
+-- The unique constraint itself covers the credentials lookup, instead of a second unique index on the same column.
+DROP INDEX IF EXISTS idx_users_username_auth;
+
+ALTER TABLE users
+    DROP CONSTRAINT uk_users_username,
+    ADD CONSTRAINT uk_users_username UNIQUE (username) INCLUDE (id, role, password);
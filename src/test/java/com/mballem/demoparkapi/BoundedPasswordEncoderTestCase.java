@@ -0,0 +1,57 @@
+package com.mballem.demoparkapi;
+
+import com.mballem.demoparkapi.exception.PasswordHashingUnavailableException;
+import com.mballem.demoparkapi.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class BoundedPasswordEncoderTestCase {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    public void shutdown(){
+        release.countDown();
+        encoder.destroy();
+    }
+
+    @Test
+    public void encodeAll_BatchLargerThanFreeQueue_ThrowPasswordHashingUnavailable(){
+        encoder = encoder(blockingDelegate(), Duration.ofSeconds(5));
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> encoder.encodeAll(List.of("1", "2", "3")))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .hasMessageContaining("overloaded");
+    }
+
+    @Test
+    public void encodeAll_BatchSlowerThanBatchTimeout_ThrowPasswordHashingUnavailable(){
+        encoder = encoder(blockingDelegate(), Duration.ofMillis(100));
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> encoder.encodeAll(List.of("1")))
+                .isInstanceOf(PasswordHashingUnavailableException.class)
+                .hasMessageContaining("timed out");
+    }
+
+    private static BoundedPasswordEncoder encoder(PasswordEncoder delegate, Duration batchTimeout) {
+        return new BoundedPasswordEncoder(delegate, 1, 1, 1, 1,
+                Duration.ofSeconds(5), batchTimeout, new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+    }
+
+    private PasswordEncoder blockingDelegate() {
+        PasswordEncoder delegate = Mockito.mock(PasswordEncoder.class);
+        Mockito.when(delegate.encode(Mockito.any())).thenAnswer(invocation -> {
+            release.await();
+            return "hash";
+        });
+        return delegate;
+    }
+}
@@ -0,0 +1,86 @@
+package com.mballem.demoparkapi;
+
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.repository.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + FlywayUpgradeMigrationTestCase.LEGACY_URL,
+        "spring.datasource.username=sa",
+        "spring.flyway.baseline-on-migrate=true",
+        "spring.flyway.baseline-version=0"
+})
+public class FlywayUpgradeMigrationTestCase {
+    static final String LEGACY_URL = "jdbc:h2:mem:legacy-upgrade;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    UserRepository userRepository;
+
+    @BeforeAll
+    static void createLegacySchema(){
+        JdbcTemplate legacy = legacySchema(LEGACY_URL);
+        legacy.update("MERGE INTO users (id, username, password, role) KEY (id) values (5, 'ana@email.com', 'x', 'ROLE_CLIENT')");
+        legacy.update("MERGE INTO users (id, username, password, role) KEY (id) values (120, 'Bob@email.com', 'x', 'ROLE_ADMIN')");
+    }
+
+    // Schema left by hibernate.ddl-auto=update before the Flyway series: IDENTITY ids, generated constraint name, no version.
+    private static JdbcTemplate legacySchema(String url){
+        JdbcTemplate legacy = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        legacy.execute("CREATE TABLE IF NOT EXISTS users (id BIGINT GENERATED BY DEFAULT AS IDENTITY, created_by VARCHAR(255), " +
+                "created_at TIMESTAMP(6), modified_by VARCHAR(255), modify_at TIMESTAMP(6), password VARCHAR(200) NOT NULL, " +
+                "role VARCHAR(25) NOT NULL, username VARCHAR(100) NOT NULL, PRIMARY KEY (id), " +
+                "CONSTRAINT uk_r43af9ap4edm43mmtq01oddj6 UNIQUE (username))");
+        return legacy;
+    }
+
+    @Test
+    public void migrate_LegacySchema_NormalizesUsernames(){
+        org.assertj.core.api.Assertions.assertThat(username(5)).isEqualTo("ana@email.com");
+        org.assertj.core.api.Assertions.assertThat(username(120)).isEqualTo("bob@email.com");
+        org.assertj.core.api.Assertions.assertThat(jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = 120", Long.class)).isZero();
+        org.assertj.core.api.Assertions.assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM refresh_tokens", Integer.class)).isZero();
+    }
+    @Test
+    public void migrate_LegacySchema_PositionsUsersSequenceAboveExistingIds(){
+        User user = new User();
+        user.setUsername("after-upgrade@email.com");
+        user.setPassword("x");
+
+        User saved = userRepository.saveAndFlush(user);
+
+        org.assertj.core.api.Assertions.assertThat(saved.getId()).isGreaterThan(120L);
+        userRepository.delete(saved);
+    }
+
+    @Test
+    public void migrate_CaseCollidingUsernames_FailsWithoutRenamingUsers(){
+        String url = "jdbc:h2:mem:legacy-collision;DB_CLOSE_DELAY=-1";
+        JdbcTemplate legacy = legacySchema(url);
+        legacy.update("INSERT INTO users (id, username, password, role) values (5, 'ana@email.com', 'x', 'ROLE_CLIENT')");
+        legacy.update("INSERT INTO users (id, username, password, role) values (9, 'Ana@Email.com', 'x', 'ROLE_CLIENT')");
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> Flyway.configure()
+                        .dataSource(url, "sa", "")
+                        .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                        .baselineOnMigrate(true)
+                        .baselineVersion("0")
+                        .load().migrate())
+                .isInstanceOf(FlywayException.class)
+                .hasMessageContaining("ana@email.com");
+        org.assertj.core.api.Assertions.assertThat(legacy.queryForList("SELECT username FROM users ORDER BY id", String.class))
+                .containsExactly("ana@email.com", "Ana@Email.com");
+    }
+
+    private String username(long id){
+        return jdbcTemplate.queryForObject("SELECT username FROM users WHERE id = ?", String.class, id);
+    }
+}
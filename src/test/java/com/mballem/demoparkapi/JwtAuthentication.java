@@ -0,0 +1,25 @@
+package com.mballem.demoparkapi;
+
+import com.mballem.demoparkapi.jwt.JwtToken;
+import com.mballem.demoparkapi.jwt.JwtUtils;
+import com.mballem.demoparkapi.web.dto.UserLoginDto;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.function.Consumer;
+
+public class JwtAuthentication {
+    public static Consumer<HttpHeaders> getHeaderAuthorization(WebTestClient client, String username, String password){
+        String token = client
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto(username, password))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JwtToken.class)
+                .returnResult().getResponseBody().getToken();
+        return headers -> headers.add(JwtUtils.JWT_AUTHORIZATION, JwtUtils.JWT_BEARER + token);
+    }
+}
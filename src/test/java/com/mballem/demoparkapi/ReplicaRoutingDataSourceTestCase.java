@@ -0,0 +1,107 @@
+package com.mballem.demoparkapi;
+
+import com.mballem.demoparkapi.cache.UserCache;
+import com.mballem.demoparkapi.datasource.ReplicaRoutingDataSource;
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.exception.EntityNotFoundException;
+import com.mballem.demoparkapi.service.UserService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "api.datasource.replicas.enabled=true",
+        "api.datasource.replicas.urls=" + ReplicaRoutingDataSourceTestCase.REPLICA_URL,
+        "api.datasource.replicas.lag-query=SELECT lag_seconds FROM replica_status",
+        "api.datasource.replicas.max-lag=PT5S"
+})
+public class ReplicaRoutingDataSourceTestCase {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    private static final JdbcTemplate REPLICA = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+    private static final String COUNT_REPLICA_ONLY_USER = "SELECT COUNT(*) FROM users WHERE username = 'replica@email.com'";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ReplicaRoutingDataSource routingDataSource;
+    @Autowired
+    UserService userService;
+    @Autowired
+    UserCache userCache;
+
+    @BeforeAll
+    static void createReplica(){
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .load().migrate();
+        REPLICA.execute("CREATE TABLE IF NOT EXISTS replica_status (lag_seconds DOUBLE PRECISION)");
+        REPLICA.update("DELETE FROM replica_status");
+        REPLICA.update("INSERT INTO replica_status (lag_seconds) values (0)");
+        REPLICA.update("MERGE INTO users (id, username, password, role) KEY (id) values (900, 'replica@email.com', 'x', 'ROLE_CLIENT')");
+    }
+
+    @Test
+    public void readOnlyTransaction_HealthyReplica_ReadsFromReplica(){
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 0");
+        routingDataSource.checkReplicas();
+
+        org.assertj.core.api.Assertions.assertThat(count(true)).isEqualTo(1);
+        org.assertj.core.api.Assertions.assertThat(count(false)).isZero();
+    }
+    @Test
+    public void readOnlyTransaction_LaggingReplica_FallsBackToPrimary(){
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 60");
+        routingDataSource.checkReplicas();
+
+        org.assertj.core.api.Assertions.assertThat(count(true)).isZero();
+
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 0");
+        routingDataSource.checkReplicas();
+    }
+
+    @Test
+    public void userLookup_LaggingReplica_ReadsFromReplicaWithoutCaching(){
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 1");
+        routingDataSource.checkReplicas();
+
+        org.assertj.core.api.Assertions.assertThat(userService.findById(900L).username()).isEqualTo("replica@email.com");
+        org.assertj.core.api.Assertions.assertThat(userCache.getById(900L)).isEmpty();
+
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 0");
+        routingDataSource.checkReplicas();
+
+        org.assertj.core.api.Assertions.assertThat(userService.findById(900L).username()).isEqualTo("replica@email.com");
+        org.assertj.core.api.Assertions.assertThat(userCache.getById(900L)).isPresent();
+        User cached = new User();
+        cached.setId(900L);
+        cached.setUsername("replica@email.com");
+        userCache.evict(cached);
+    }
+    @Test
+    public void credentialLookups_HealthyReplica_ReadFromPrimary(){
+        REPLICA.update("UPDATE replica_status SET lag_seconds = 0");
+        routingDataSource.checkReplicas();
+
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> userService.findCredentialsByUsername("replica@email.com"))
+                .isInstanceOf(EntityNotFoundException.class);
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> userService.updatePassword(900L, "123456", "654321", "654321"))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    private Integer count(boolean readOnly){
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> jdbcTemplate.queryForObject(COUNT_REPLICA_ONLY_USER, Integer.class));
+    }
+}
@@ -0,0 +1,118 @@
+package com.mballem.demoparkapi;
+
+import com.mballem.demoparkapi.config.DataSourceTuningConfig;
+import com.mballem.demoparkapi.config.ThroughputConfigValidator;
+import com.mballem.demoparkapi.datasource.HikariPools;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.mock.env.MockEnvironment;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+public class ThroughputConfigValidatorTestCase {
+
+    @Test
+    public void poolSize_ExpectedConcurrencyAboveCores_ReturnCoresTimesTwoPlusSpindles(){
+        org.assertj.core.api.Assertions.assertThat(HikariPools.poolSize(4, 50, 1)).isEqualTo(9);
+        org.assertj.core.api.Assertions.assertThat(HikariPools.poolSize(4, 50, 3)).isEqualTo(11);
+    }
+    @Test
+    public void poolSize_LowExpectedConcurrency_ReturnExpectedConcurrencyWithMinimumOfTwo(){
+        org.assertj.core.api.Assertions.assertThat(HikariPools.poolSize(4, 5, 1)).isEqualTo(5);
+        org.assertj.core.api.Assertions.assertThat(HikariPools.poolSize(4, 1, 1)).isEqualTo(2);
+    }
+    @Test
+    public void autoSize_Enabled_ReturnFixedSizePool(){
+        HikariDataSource pool = new HikariDataSource();
+        DataSourceTuningConfig.autoSize(pool, new MockEnvironment()
+                .withProperty("api.datasource.pool.auto-size", "true")
+                .withProperty("api.datasource.pool.expected-concurrency", "2"));
+
+        org.assertj.core.api.Assertions.assertThat(pool.getMaximumPoolSize()).isEqualTo(2);
+        org.assertj.core.api.Assertions.assertThat(pool.getMinimumIdle()).isEqualTo(2);
+    }
+    @Test
+    public void autoSize_Disabled_KeepConfiguredSize(){
+        HikariDataSource pool = new HikariDataSource();
+        pool.setMaximumPoolSize(7);
+        DataSourceTuningConfig.autoSize(pool, new MockEnvironment());
+
+        org.assertj.core.api.Assertions.assertThat(pool.getMaximumPoolSize()).isEqualTo(7);
+    }
+    @Test
+    public void findTraps_TunedConfiguration_ReturnNoTraps(){
+        List<String> traps = validator(tunedEnvironment(), tunedPool(), sessionFactory(false)).findTraps();
+
+        org.assertj.core.api.Assertions.assertThat(traps).isEmpty();
+    }
+    @Test
+    public void findTraps_StatisticsEnabledOnlyOnSessionFactory_ReturnStatisticsTrap(){
+        List<String> traps = validator(tunedEnvironment(), tunedPool(), sessionFactory(true)).findTraps();
+
+        org.assertj.core.api.Assertions.assertThat(traps).singleElement().asString().contains("generate_statistics");
+    }
+    @Test
+    public void findTraps_DevelopmentDefaults_ReturnTraps(){
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("dev");
+        pool.setJdbcUrl("jdbc:postgresql://localhost/park");
+        pool.setMaximumPoolSize(2);
+        pool.setMinimumIdle(1);
+
+        List<String> traps = validator(new MockEnvironment()
+                .withProperty("spring.jpa.show-sql", "true")
+                .withProperty("logging.level.org.hibernate.SQL", "debug")
+                .withProperty("spring.jpa.hibernate.ddl-auto", "update"), pool, sessionFactory(false)).findTraps();
+
+        org.assertj.core.api.Assertions.assertThat(traps).hasSize(8)
+                .anyMatch(trap -> trap.contains("show-sql"))
+                .anyMatch(trap -> trap.contains("org.hibernate.SQL=DEBUG"))
+                .anyMatch(trap -> trap.contains("open-in-view"))
+                .anyMatch(trap -> trap.contains("ddl-auto"))
+                .anyMatch(trap -> trap.contains("batch_size"))
+                .anyMatch(trap -> trap.contains("pool dev is not fixed size"))
+                .anyMatch(trap -> trap.contains("pool dev waits 30000ms"))
+                .anyMatch(trap -> trap.contains("reWriteBatchedInserts"));
+    }
+
+    private static ThroughputConfigValidator validator(MockEnvironment environment, DataSource dataSource, EntityManagerFactory entityManagerFactory) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of(
+                "dataSource", dataSource,
+                "entityManagerFactory", entityManagerFactory));
+        return new ThroughputConfigValidator(environment, beanFactory.getBeanProvider(DataSource.class),
+                beanFactory.getBeanProvider(EntityManagerFactory.class));
+    }
+
+    private static MockEnvironment tunedEnvironment() {
+        return new MockEnvironment()
+                .withProperty("spring.jpa.open-in-view", "false")
+                .withProperty("spring.jpa.hibernate.ddl-auto", "validate")
+                .withProperty("spring.jpa.properties.hibernate.jdbc.batch_size", "50");
+    }
+
+    private static HikariDataSource tunedPool() {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("tuned");
+        pool.setJdbcUrl("jdbc:postgresql://localhost/park?reWriteBatchedInserts=true");
+        pool.setMaximumPoolSize(2);
+        pool.setMinimumIdle(2);
+        pool.setConnectionTimeout(2000);
+        return pool;
+    }
+
+    private static SessionFactory sessionFactory(boolean statisticsEnabled) {
+        Statistics statistics = Mockito.mock(Statistics.class);
+        Mockito.when(statistics.isStatisticsEnabled()).thenReturn(statisticsEnabled);
+        SessionFactory sessionFactory = Mockito.mock(SessionFactory.class);
+        Mockito.when(sessionFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        Mockito.when(sessionFactory.getStatistics()).thenReturn(statistics);
+        return sessionFactory;
+    }
+}
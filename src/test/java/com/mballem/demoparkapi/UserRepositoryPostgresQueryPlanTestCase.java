@@ -0,0 +1,50 @@
+package com.mballem.demoparkapi;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+// Runs against a real PostgreSQL when API_TEST_POSTGRESQL_URL is set, e.g. jdbc:postgresql://localhost:5432/park?user=park&password=park
+@EnabledIfEnvironmentVariable(named = "API_TEST_POSTGRESQL_URL", matches = "jdbc:postgresql:.+")
+public class UserRepositoryPostgresQueryPlanTestCase {
+    private static final String SCHEMA = "query_plan_test";
+    private static SingleConnectionDataSource dataSource;
+    private static Flyway flyway;
+
+    @BeforeAll
+    static void migrate(){
+        dataSource = new SingleConnectionDataSource(System.getenv("API_TEST_POSTGRESQL_URL"), true);
+        flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .locations("classpath:db/migration/common", "classpath:db/migration/postgresql")
+                .cleanDisabled(false)
+                .load();
+        flyway.clean();
+        flyway.migrate();
+    }
+
+    @AfterAll
+    static void clean(){
+        flyway.clean();
+        dataSource.destroy();
+    }
+
+    @Test
+    public void credentialsLookup_ByUsername_UsesIndexOnlyScanOfUniqueConstraint(){
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA);
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) SELECT i, 'user' || i || '@email.com', 'x', 'ROLE_CLIENT' " +
+                "FROM generate_series(1, 1000) AS i");
+        jdbcTemplate.execute("VACUUM ANALYZE users");
+
+        String plan = String.join("\n", jdbcTemplate.queryForList(
+                "EXPLAIN SELECT u.id, u.username, u.password, u.role FROM users u WHERE u.username = 'user500@email.com'", String.class));
+
+        org.assertj.core.api.Assertions.assertThat(plan).contains("Index Only Scan using uk_users_username");
+    }
+}
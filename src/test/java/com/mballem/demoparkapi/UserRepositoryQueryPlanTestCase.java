@@ -0,0 +1,28 @@
+package com.mballem.demoparkapi;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@DataJpaTest
+public class UserRepositoryQueryPlanTestCase {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void credentialsLookup_ByUsername_UsesCoveringIndex(){
+        String plan = jdbcTemplate.queryForObject(
+                "EXPLAIN SELECT u.id, u.username, u.password, u.role FROM users u WHERE u.username = 'marcelo@email.com'", String.class);
+
+        org.assertj.core.api.Assertions.assertThat(plan).containsIgnoringCase("IDX_USERS_USERNAME_AUTH");
+        org.assertj.core.api.Assertions.assertThat(plan).doesNotContainIgnoringCase("tableScan");
+    }
+    @Test
+    public void insertUser_WithUppercaseUsername_ViolatesNormalization(){
+        org.assertj.core.api.Assertions.assertThatThrownBy(() -> jdbcTemplate.update(
+                "INSERT INTO users (id, username, password, role) values (1, 'Marcelo@Email.com', 'x', 'ROLE_CLIENT')"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
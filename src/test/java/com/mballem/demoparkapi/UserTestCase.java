@@ -1,17 +1,34 @@
 package com.mballem.demoparkapi;
 
+import com.mballem.demoparkapi.exception.PasswordHashingUnavailableException;
+import com.mballem.demoparkapi.jwt.JwtRevocationRegistry;
+import com.mballem.demoparkapi.jwt.JwtToken;
+import com.mballem.demoparkapi.security.InMemoryLoginAttemptLimiter;
+import com.mballem.demoparkapi.security.LoginAttemptLimiter;
+import com.mballem.demoparkapi.web.dto.RefreshTokenDto;
+import com.mballem.demoparkapi.web.dto.UserBatchCreateDto;
+import com.mballem.demoparkapi.web.dto.UserBatchResultDto;
 import com.mballem.demoparkapi.web.dto.UserCreateDto;
+import com.mballem.demoparkapi.web.dto.UserLoginDto;
 import com.mballem.demoparkapi.web.dto.UserPasswordDto;
 import com.mballem.demoparkapi.web.dto.UserResponseDto;
 import com.mballem.demoparkapi.web.exception.ErrorMessage;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @Sql(scripts = "/sql/users/users-insert.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -19,6 +36,23 @@ import java.util.List;
 public class UserTestCase {
     @Autowired
     WebTestClient testClient;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @SpyBean
+    PasswordEncoder passwordEncoder;
+    @Autowired
+    JwtRevocationRegistry revocationRegistry;
+    @Autowired
+    LoginAttemptLimiter loginAttemptLimiter;
+
+    // The users are re-inserted before every test, revocations and lockouts of an earlier test must not leak into the next one.
+    @AfterEach
+    public void clearSecurityState(){
+        revocationRegistry.clear();
+        if (loginAttemptLimiter instanceof InMemoryLoginAttemptLimiter limiter){
+            limiter.clear();
+        }
+    }
 
     @Test
     public void createUser_WithUserAndPassword_Return201(){
@@ -78,6 +112,7 @@ public class UserTestCase {
         UserResponseDto responseBody = testClient
                 .get()
                 .uri("/api/v1/users/100")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
                 .exchange()
                 .expectStatus().isOk()
                 .expectBody(UserResponseDto.class)
@@ -87,10 +122,33 @@ public class UserTestCase {
         org.assertj.core.api.Assertions.assertThat(responseBody.getRole()).isEqualTo("ADMIN");
     }
     @Test
+    public void searchUser_WithMatchingETag_Return304(){
+        Consumer<HttpHeaders> authorization = JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456");
+        String eTag = testClient
+                .get()
+                .uri("/api/v1/users/100")
+                .headers(authorization)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .returnResult(UserResponseDto.class)
+                .getResponseHeaders().getETag();
+
+        testClient
+                .get()
+                .uri("/api/v1/users/100")
+                .headers(authorization)
+                .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+    @Test
     public void searchUser_WithNonExistentId_Return404(){
         ErrorMessage responseBody = testClient
                 .get()
                 .uri("/api/v1/users/0")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
                 .exchange()
                 .expectStatus().isNotFound()
                 .expectBody(ErrorMessage.class)
@@ -99,10 +157,26 @@ public class UserTestCase {
         org.assertj.core.api.Assertions.assertThat(responseBody.getStatus()).isEqualTo(404);
     }
     @Test
+    public void searchUser_WithInvalidToken_Return403(){
+        testClient
+                .get()
+                .uri("/api/v1/users/100")
+                .header("Authorization", "Bearer not-a-jwt")
+                .exchange()
+                .expectStatus().isForbidden();
+        testClient
+                .get()
+                .uri("/api/v1/users/100")
+                .header("Authorization", "Bearer ")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+    @Test
     public void listUser_noParameter_Return200(){
         List<UserResponseDto> responseBody = testClient
                 .get()
                 .uri("/api/v1/users")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
                 .exchange()
                 .expectStatus().isOk()
                 .expectBodyList(UserResponseDto.class)
@@ -111,10 +185,65 @@ public class UserTestCase {
         org.assertj.core.api.Assertions.assertThat(responseBody.size()).isEqualTo(3);
     }
     @Test
+    public void listUser_WithSize_ReturnNextCursorLink(){
+        EntityExchangeResult<List<UserResponseDto>> result = testClient
+                .get()
+                .uri("/api/v1/users?size=2")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserResponseDto.class)
+                .returnResult();
+        org.assertj.core.api.Assertions.assertThat(result.getResponseBody()).extracting(UserResponseDto::getId).containsExactly(100L, 101L);
+        org.assertj.core.api.Assertions.assertThat(result.getResponseHeaders().getFirst(HttpHeaders.LINK)).contains("cursor=101").contains("rel=\"next\"");
+
+        result = testClient
+                .get()
+                .uri("/api/v1/users?size=2&cursor=101")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserResponseDto.class)
+                .returnResult();
+        org.assertj.core.api.Assertions.assertThat(result.getResponseBody()).extracting(UserResponseDto::getId).containsExactly(102L);
+        org.assertj.core.api.Assertions.assertThat(result.getResponseHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+    }
+    @Test
+    public void exportUser_NoParameter_ReturnNdjson200(){
+        String responseBody = testClient
+                .get()
+                .uri("/api/v1/users/export")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody).isNotNull();
+        org.assertj.core.api.Assertions.assertThat(responseBody.lines()).hasSize(3);
+        org.assertj.core.api.Assertions.assertThat(responseBody.lines().findFirst()).hasValue("{\"id\":100,\"username\":\"marcelo@email.com\",\"role\":\"ADMIN\"}");
+    }
+    @Test
+    public void exportUser_CsvWithSeparatorInUsername_ReturnQuotedFields200(){
+        jdbcTemplate.update("INSERT INTO users (id, username, password, role) values (103, '\"o,neil\"@email.com', 'x', 'ROLE_CLIENT')");
+
+        String responseBody = testClient
+                .get()
+                .uri("/api/v1/users/export?format=csv")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody).startsWith("id,username,role\r\n100,marcelo@email.com,ADMIN\r\n");
+        org.assertj.core.api.Assertions.assertThat(responseBody).endsWith("103,\"\"\"o,neil\"\"@email.com\",CLIENT\r\n");
+    }
+    @Test
     public void patchUser_WithUserAndPassword_Return204(){
           testClient
                 .patch()
                 .uri("/api/v1/users/100")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
                 .contentType(MediaType.APPLICATION_JSON)
                 .bodyValue(new UserPasswordDto("123456", "1234567", "1234567"))
                 .exchange()
@@ -123,4 +252,248 @@ public class UserTestCase {
                 .returnResult().getResponseBody();
     }
 
+    @Test
+    public void patchUser_ThenLoginWithNewPassword_Return200(){
+        testClient
+                .patch()
+                .uri("/api/v1/users/101")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "rocha@email.com", "123456"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserPasswordDto("123456", "654321", "654321"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        JwtAuthentication.getHeaderAuthorization(testClient, "rocha@email.com", "654321");
+        testClient
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("rocha@email.com", "123456"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+    @Test
+    public void patchUser_ThenUseTokenIssuedInTheSameSecond_Return403(){
+        Long id = createUser("revoked@email.com", "123456");
+        Consumer<HttpHeaders> authorization = JwtAuthentication.getHeaderAuthorization(testClient, "revoked@email.com", "123456");
+        testClient
+                .patch()
+                .uri("/api/v1/users/" + id)
+                .headers(authorization)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserPasswordDto("123456", "654321", "654321"))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        testClient
+                .get()
+                .uri("/api/v1/users/" + id)
+                .headers(authorization)
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+
+    @Test
+    public void patchUser_VersionChangedBeforeUpdate_ReturnErrorMessage409(){
+        Long id = createUser("concurrent@email.com", "123456");
+        Consumer<HttpHeaders> authorization = JwtAuthentication.getHeaderAuthorization(testClient, "concurrent@email.com", "123456");
+        Mockito.doAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE users SET version = version + 1 WHERE id = ?", id);
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(Mockito.any());
+
+        ErrorMessage responseBody = testClient
+                .patch()
+                .uri("/api/v1/users/" + id)
+                .headers(authorization)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserPasswordDto("123456", "654321", "654321"))
+                .exchange()
+                .expectStatus().isEqualTo(409)
+                .expectBody(ErrorMessage.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody).isNotNull();
+        org.assertj.core.api.Assertions.assertThat(responseBody.getStatus()).isEqualTo(409);
+        JwtAuthentication.getHeaderAuthorization(testClient, "concurrent@email.com", "123456");
+    }
+
+    @Test
+    public void login_RepeatedBadCredentials_ReturnErrorMessage429(){
+        for (int i = 0; i < 5; i++) {
+            testClient
+                    .post()
+                    .uri("/api/v1/auth")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UserLoginDto("paladino@email.com", "wrong-password"))
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+        ErrorMessage responseBody = testClient
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("paladino@email.com", "123456"))
+                .exchange()
+                .expectStatus().isEqualTo(429)
+                .expectHeader().exists(HttpHeaders.RETRY_AFTER)
+                .expectBody(ErrorMessage.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    public void login_LockedOutBehindProxy_OtherForwardedClientReturn200(){
+        for (int i = 0; i < 5; i++) {
+            testClient
+                    .post()
+                    .uri("/api/v1/auth")
+                    .header("X-Forwarded-For", "203.0.113.7")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(new UserLoginDto("rocha@email.com", "wrong-password"))
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+        testClient
+                .post()
+                .uri("/api/v1/auth")
+                .header("X-Forwarded-For", "203.0.113.7")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("rocha@email.com", "123456"))
+                .exchange()
+                .expectStatus().isEqualTo(429);
+
+        testClient
+                .post()
+                .uri("/api/v1/auth")
+                .header("X-Forwarded-For", "203.0.113.8")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("rocha@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void login_PasswordHashUpgradeFails_Return200(){
+        Mockito.doThrow(new PasswordHashingUnavailableException("Password hashing is overloaded, try again later"))
+                .when(passwordEncoder).encode(Mockito.any());
+
+        testClient
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("marcelo@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void login_PasswordHashUpgradedConcurrently_Return200(){
+        Mockito.doAnswer(invocation -> {
+            jdbcTemplate.update("UPDATE users SET password = CONCAT('{bcrypt}', password) WHERE id = 101");
+            return invocation.callRealMethod();
+        }).when(passwordEncoder).encode(Mockito.any());
+
+        testClient
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("rocha@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk();
+        org.assertj.core.api.Assertions.assertThat(jdbcTemplate.queryForObject("SELECT password FROM users WHERE id = 101", String.class))
+                .startsWith("{bcrypt}$2a$10$");
+    }
+
+    @Test
+    public void createBatch_WithExistingAndRepeatedUsernames_ReturnResultPerItem200(){
+        List<UserBatchResultDto> responseBody = testClient
+                .post()
+                .uri("/api/v1/users/batch")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserBatchCreateDto(List.of(
+                        new UserCreateDto("import01@email.com", "123456"),
+                        new UserCreateDto("rocha@email.com", "123456"),
+                        new UserCreateDto("import02@email.com", "123456"),
+                        new UserCreateDto("import01@email.com", "123456"))))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(UserBatchResultDto.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody).extracting(UserBatchResultDto::getStatus)
+                .containsExactly(201, 409, 201, 409);
+        org.assertj.core.api.Assertions.assertThat(responseBody.get(0).getUser().getId()).isNotNull();
+        org.assertj.core.api.Assertions.assertThat(responseBody.get(2).getUser().getRole()).isEqualTo("CLIENT");
+    }
+
+    @Test
+    public void createBatch_MoreUsersThanBatchLimit_ReturnErrorMessage422(){
+        List<UserCreateDto> users = java.util.stream.IntStream.rangeClosed(0, UserBatchCreateDto.MAX_USERS)
+                .mapToObj(i -> new UserCreateDto("import" + i + "@email.com", "123456"))
+                .toList();
+        ErrorMessage responseBody = testClient
+                .post()
+                .uri("/api/v1/users/batch")
+                .headers(JwtAuthentication.getHeaderAuthorization(testClient, "marcelo@email.com", "123456"))
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserBatchCreateDto(users))
+                .exchange()
+                .expectStatus().isEqualTo(422)
+                .expectBody(ErrorMessage.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(responseBody).isNotNull();
+        org.assertj.core.api.Assertions.assertThat(responseBody.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    public void refreshToken_RotatedTokenReused_ReturnErrorMessage400(){
+        JwtToken login = testClient
+                .post()
+                .uri("/api/v1/auth")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserLoginDto("rocha@email.com", "123456"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JwtToken.class)
+                .returnResult().getResponseBody();
+        JwtToken refreshed = testClient
+                .post()
+                .uri("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDto(login.getRefreshToken()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JwtToken.class)
+                .returnResult().getResponseBody();
+        org.assertj.core.api.Assertions.assertThat(refreshed.getToken()).isNotBlank();
+        org.assertj.core.api.Assertions.assertThat(refreshed.getRefreshToken()).isNotEqualTo(login.getRefreshToken());
+
+        testClient
+                .post()
+                .uri("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDto(login.getRefreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+        testClient
+                .post()
+                .uri("/api/v1/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new RefreshTokenDto(refreshed.getRefreshToken()))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+
+    private Long createUser(String username, String password){
+        return testClient
+                .post()
+                .uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserCreateDto(username, password))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(UserResponseDto.class)
+                .returnResult().getResponseBody().getId();
+    }
 }
@@ -0,0 +1,40 @@
+package com.mballem.demoparkapi.benchmark;
+
+import com.mballem.demoparkapi.web.dto.UserCreateDto;
+import com.mballem.demoparkapi.web.exception.ErrorMessage;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorMessageBenchmark {
+    private MockHttpServletRequest request;
+    private BindingResult result;
+
+    @Setup
+    public void setup() {
+        request = new MockHttpServletRequest("POST", "/api/v1/users");
+        result = new BeanPropertyBindingResult(new UserCreateDto("invalid", "123"), "userCreateDto");
+        result.rejectValue("username", "Email", "must be a well-formed email address");
+        result.rejectValue("password", "Size", "size must be between 6 and 2147483647");
+    }
+
+    @Benchmark
+    public ErrorMessage errorMessage() {
+        return new ErrorMessage(request, HttpStatus.NOT_FOUND, "User id=0 yet exists");
+    }
+
+    @Benchmark
+    public ErrorMessage errorMessageWithBindingResult() {
+        return new ErrorMessage(request, HttpStatus.UNPROCESSABLE_ENTITY, "Invalid fields", result);
+    }
+}
@@ -0,0 +1,79 @@
+package com.mballem.demoparkapi.benchmark;
+
+import com.mballem.demoparkapi.jwt.JwtToken;
+import com.mballem.demoparkapi.jwt.JwtUtils;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+    private static final String SECRET = "12345678-12345678-12345678-12345678";
+
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils(SECRET, "default", "", Duration.ofMinutes(2));
+        token = JwtUtils.JWT_BEARER + jwtUtils.createToken(100L, "marcelo@email.com", "ADMIN").getToken();
+    }
+
+    @Benchmark
+    public JwtToken createToken() {
+        return jwtUtils.createToken(100L, "marcelo@email.com", "ADMIN");
+    }
+
+    @Benchmark
+    public boolean isTokenValid() {
+        return jwtUtils.isTokenValid(token);
+    }
+
+    @Benchmark
+    public String getUserFromToken() {
+        return jwtUtils.getUserFromToken(token);
+    }
+
+    @Benchmark
+    public Claims getClaimsFromToken() {
+        return jwtUtils.getClaimsFromToken(token);
+    }
+
+    // Previous static implementation: key derived per call, LocalDateTime expiry and a new parser per token.
+    @Benchmark
+    public String createTokenPerCallKey() {
+        Date issuedAt = new Date();
+        LocalDateTime dateTime = issuedAt.toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        Date limit = Date.from(dateTime.plusDays(0).plusHours(0).plusMinutes(2).atZone(ZoneId.systemDefault()).toInstant());
+        return Jwts.builder()
+                .setHeaderParam("typ", "JWT")
+                .setSubject("marcelo@email.com")
+                .setIssuedAt(issuedAt)
+                .setExpiration(limit)
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS256)
+                .claim(JwtUtils.JWT_ID_CLAIM, 100L)
+                .claim(JwtUtils.JWT_ROLE_CLAIM, "ADMIN")
+                .compact();
+    }
+
+    @Benchmark
+    public Claims getClaimsPerCallParser() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8))).build()
+                .parseClaimsJws(token.substring(JwtUtils.JWT_BEARER.length())).getBody();
+    }
+}
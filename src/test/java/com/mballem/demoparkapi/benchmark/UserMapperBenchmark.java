@@ -0,0 +1,70 @@
+package com.mballem.demoparkapi.benchmark;
+
+import com.mballem.demoparkapi.entity.User;
+import com.mballem.demoparkapi.web.dto.UserResponseDto;
+import com.mballem.demoparkapi.web.dto.mapper.UserMapper;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.PropertyMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private List<User> users;
+
+    @Setup
+    public void setup() {
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            User user = new User();
+            user.setId((long) i);
+            user.setUsername("user" + i + "@email.com");
+            user.setRole(i % 2 == 0 ? User.Role.ROLE_CLIENT : User.Role.ROLE_ADMIN);
+            users.add(user);
+        }
+    }
+
+    @Benchmark
+    public UserResponseDto toDto() {
+        return UserMapper.toDto(users.get(0));
+    }
+
+    @Benchmark
+    public List<UserResponseDto> toListDto() {
+        return UserMapper.toListDto(users);
+    }
+
+    @Benchmark
+    public List<UserResponseDto> toListDtoPerCallModelMapper() {
+        return users.stream().map(UserMapperBenchmark::toDtoPerCallModelMapper).collect(Collectors.toList());
+    }
+
+    private static UserResponseDto toDtoPerCallModelMapper(User user) {
+        String role = user.getRole().name().substring("ROLE_".length());
+
+        PropertyMap<User, UserResponseDto> props = new PropertyMap<User, UserResponseDto>() {
+            @Override
+            protected void configure() {
+                map().setRole(role);
+            }
+        };
+
+        ModelMapper mapper = new ModelMapper();
+
+        mapper.addMappings(props);
+
+        return mapper.map(user, UserResponseDto.class);
+    }
+}
@@ -0,0 +1,268 @@
+package com.mballem.demoparkapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mballem.demoparkapi.jwt.JwtToken;
+import com.mballem.demoparkapi.jwt.JwtUtils;
+import com.mballem.demoparkapi.web.dto.UserLoginDto;
+import com.mballem.demoparkapi.web.dto.UserPasswordDto;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives mixed traffic (login, get by id, list, patch password) against the application booted on H2 and
+ * fails when the configured SLOs regress. Run with {@code mvn -Ploadtest test}; tune it with the
+ * {@code loadtest.*} system properties and compare thread modes with {@code -Dapi.threads.virtual.enabled=true}.
+ * With {@code -Dloadtest.baseline=<a loadtest-report.json kept from an earlier run>} the SLOs are derived from that run,
+ * allowing {@code loadtest.slo.tolerance} of regression, instead of the fixed defaults.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "/sql/users/users-insert.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+@Sql(scripts = "/sql/users/users-delete.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+public class UserLoadTestCase {
+    private static final int USERS = Integer.getInteger("loadtest.users", 1000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 16);
+    private static final Duration DURATION = Duration.parse(System.getProperty("loadtest.duration", "PT30S"));
+    private static final Duration WARMUP = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+    private static final long SLO_READ_P99_MILLIS = Long.getLong("loadtest.slo.read-p99-ms", 250);
+    private static final long SLO_LOGIN_P99_MILLIS = Long.getLong("loadtest.slo.login-p99-ms", 500);
+    private static final double SLO_MIN_THROUGHPUT = Double.parseDouble(System.getProperty("loadtest.slo.min-throughput", "100"));
+    private static final double SLO_MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.slo.max-error-rate", "0.01"));
+    private static final String BASELINE = System.getProperty("loadtest.baseline");
+    private static final double SLO_TOLERANCE = Double.parseDouble(System.getProperty("loadtest.slo.tolerance", "0.25"));
+    private static final long FIRST_ID = 1000;
+
+    @LocalServerPort
+    int port;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Value("${api.threads.virtual.enabled:false}")
+    boolean virtualThreads;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void mixedTraffic_MeetsLatencySlo() throws Exception {
+        seedUsers();
+
+        Map<String, Queue<Long>> latencies = new ConcurrentHashMap<>();
+        AtomicLong errors = new AtomicLong();
+        // Nothing is recorded during the warm-up: the first logins of every worker all queue on the BCrypt pool of a cold JVM.
+        long measureFrom = System.nanoTime() + WARMUP.toNanos();
+        long deadline = measureFrom + DURATION.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            long userId = FIRST_ID + i;
+            workers.add(executor.submit(() -> runWorker(userId, measureFrom, deadline, latencies, errors)));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - measureFrom) / 1e9;
+        executor.shutdown();
+
+        Map<String, Object> report = report(latencies, errors.get(), elapsedSeconds);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(new File("target/loadtest-report.json"), report);
+        Map<String, Object> baseline = BASELINE == null ? null : objectMapper.readValue(new File(BASELINE), Map.class);
+
+        Map<String, Object> total = section(report, "total");
+        long requests = (long) total.get("count");
+        org.assertj.core.api.Assertions.assertThat(requests).isPositive();
+        org.assertj.core.api.Assertions.assertThat((double) errors.get() / requests).as("error rate").isLessThanOrEqualTo(SLO_MAX_ERROR_RATE);
+        org.assertj.core.api.Assertions.assertThat((double) total.get("throughput")).as("throughput")
+                .isGreaterThanOrEqualTo(baseline == null ? SLO_MIN_THROUGHPUT : number(section(baseline, "total"), "throughput") * (1 - SLO_TOLERANCE));
+
+        Map<String, Object> operations = section(report, "operations");
+        for (String read : List.of("getById", "list")) {
+            org.assertj.core.api.Assertions.assertThat((long) section(operations, read).get("p99Millis")).as(read + " p99")
+                    .isLessThanOrEqualTo(p99Slo(baseline, read, SLO_READ_P99_MILLIS));
+        }
+        org.assertj.core.api.Assertions.assertThat((long) section(operations, "login").get("p99Millis")).as("login p99")
+                .isLessThanOrEqualTo(p99Slo(baseline, "login", SLO_LOGIN_P99_MILLIS));
+    }
+
+    private static long p99Slo(Map<String, Object> baseline, String operation, long fallback) {
+        if (baseline == null) {
+            return fallback;
+        }
+        return Math.round(number(section(section(baseline, "operations"), operation), "p99Millis") * (1 + SLO_TOLERANCE));
+    }
+
+    private static double number(Map<String, Object> section, String name) {
+        return ((Number) section.get(name)).doubleValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> section(Map<String, Object> report, String name) {
+        return (Map<String, Object>) report.getOrDefault(name, Map.of("count", 0L, "p99Millis", 0L, "throughput", 0d));
+    }
+
+    private void seedUsers() {
+        String hash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE id = 100", String.class);
+        List<Object[]> rows = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            rows.add(new Object[]{FIRST_ID + i, "load" + i + "@email.com", hash, "ROLE_CLIENT"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, username, password, role) values (?, ?, ?, ?)", rows);
+    }
+
+    private void runWorker(long userId, long measureFrom, long deadline, Map<String, Queue<Long>> latencies, AtomicLong errors) {
+        String username = "load" + (userId - FIRST_ID) + "@email.com";
+        String password = "123456";
+        String token = null;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int dice = random.nextInt(100);
+            String operation;
+            HttpRequest request;
+            if (token == null || dice < 15) {
+                operation = "login";
+                request = post("/api/v1/auth", new UserLoginDto(username, password)).build();
+            } else if (dice < 65) {
+                operation = "getById";
+                request = authorized(HttpRequest.newBuilder(uri("/api/v1/users/" + (FIRST_ID + random.nextInt(USERS)))), token).GET().build();
+            } else if (dice < 99) {
+                operation = "list";
+                request = authorized(HttpRequest.newBuilder(uri("/api/v1/users?size=20&cursor=" + (FIRST_ID + random.nextInt(USERS)))), token).GET().build();
+            } else {
+                operation = "patchPassword";
+                String newPassword = password.equals("123456") ? "1234567" : "123456";
+                request = authorized(HttpRequest.newBuilder(uri("/api/v1/users/" + userId)), token)
+                        .header("Content-Type", "application/json")
+                        .method("PATCH", body(new UserPasswordDto(password, newPassword, newPassword)))
+                        .build();
+            }
+
+            long started = System.nanoTime();
+            HttpResponse<String> response = send(request);
+            boolean measured = started >= measureFrom;
+            if (measured) {
+                latencies.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - started);
+            }
+
+            if (response == null || response.statusCode() >= 300) {
+                if (measured) {
+                    errors.incrementAndGet();
+                }
+                token = null;
+                continue;
+            }
+            if (operation.equals("login")) {
+                token = read(response.body(), JwtToken.class).getToken();
+            } else if (operation.equals("patchPassword")) {
+                password = password.equals("123456") ? "1234567" : "123456";
+                token = null;
+                awaitRevocationWindow();
+            }
+        }
+    }
+
+    // Tokens issued up to the second after a password change are revoked (iat has second precision), log in again after that.
+    private static void awaitRevocationWindow() {
+        try {
+            Thread.sleep(2000 - System.currentTimeMillis() % 1000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Object> report(Map<String, Queue<Long>> latencies, long errors, double elapsedSeconds) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("virtualThreads", virtualThreads);
+        report.put("users", USERS);
+        report.put("threads", THREADS);
+        report.put("durationSeconds", elapsedSeconds);
+        report.put("errors", errors);
+        List<Long> all = new ArrayList<>();
+        Map<String, Object> operations = new TreeMap<>();
+        latencies.forEach((operation, samples) -> {
+            List<Long> values = new ArrayList<>(samples);
+            all.addAll(values);
+            operations.put(operation, summary(values, elapsedSeconds));
+        });
+        report.put("operations", operations);
+        report.put("total", summary(all, elapsedSeconds));
+        return report;
+    }
+
+    private static Map<String, Object> summary(List<Long> samples, double elapsedSeconds) {
+        Collections.sort(samples);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", (long) samples.size());
+        summary.put("throughput", samples.size() / elapsedSeconds);
+        summary.put("p50Millis", percentile(samples, 0.50));
+        summary.put("p99Millis", percentile(samples, 0.99));
+        summary.put("maxMillis", samples.isEmpty() ? 0L : TimeUnit.NANOSECONDS.toMillis(samples.get(samples.size() - 1)));
+        return summary;
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return TimeUnit.NANOSECONDS.toMillis(sorted.get(Math.max(index, 0)));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpRequest.Builder post(String path, Object body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(body(body));
+    }
+
+    private static HttpRequest.Builder authorized(HttpRequest.Builder builder, String token) {
+        return builder.header(JwtUtils.JWT_AUTHORIZATION, JwtUtils.JWT_BEARER + token);
+    }
+
+    private HttpRequest.BodyPublisher body(Object body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private <T> T read(String body, Class<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+}
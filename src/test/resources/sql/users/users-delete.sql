@@ -1 +1,2 @@
+DELETE FROM refresh_tokens;
 DELETE FROM users;
\ No newline at end of file
@@ -1,3 +1,3 @@
-INSERT INTO users (id, username, password, role) values (100, 'marcelo@email.com', '123456', 'ROLE_ADMIN');
-INSERT INTO users (id, username, password, role) values (101, 'rocha@email.com', '123456', 'ROLE_CLIENT');
-INSERT INTO users (id, username, password, role) values (102, 'paladino@email.com', '123456', 'ROLE_CLIENT');
\ No newline at end of file
+INSERT INTO users (id, username, password, role) values (100, 'marcelo@email.com', '$2a$10$OVNXsKoae.Ii0XpJMT0lSODWQxL7hbtBnnXVTQ9vQ8RvPQQtRpq1i', 'ROLE_ADMIN');
+INSERT INTO users (id, username, password, role) values (101, 'rocha@email.com', '$2a$10$OVNXsKoae.Ii0XpJMT0lSODWQxL7hbtBnnXVTQ9vQ8RvPQQtRpq1i', 'ROLE_CLIENT');
+INSERT INTO users (id, username, password, role) values (102, 'paladino@email.com', '$2a$10$OVNXsKoae.Ii0XpJMT0lSODWQxL7hbtBnnXVTQ9vQ8RvPQQtRpq1i', 'ROLE_CLIENT');
\ No newline at end of file